@@ -1,20 +1,19 @@
 package ru.aston.user;
 
-import org.modelmapper.ModelMapper;
-import org.springframework.context.annotation.Bean;
+import ru.aston.user.config.UserRuntimeHints;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
+@EnableScheduling
+@ImportRuntimeHints(UserRuntimeHints.class)
 public class UserServiceApp {
 
 	public static void main(String[] args) {
         SpringApplication.run(UserServiceApp.class, args);
 	}
-
-    @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
-    }
 }
@@ -0,0 +1,115 @@
+package ru.aston.user.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+
+
+// Tomcat applies server.compression.min-response-size only to responses whose length it knows, that is
+// ones still uncommitted when the request ends. Spring's message converters flush after every body and
+// so commit even a tiny one early, which then gets compressed. Flushes are held back here until the body
+// reaches the threshold; the bytes themselves still go straight into Tomcat's response buffer.
+// Streamed responses, NDJSON or a StreamingResponseBody on its async thread, flush as they go: their
+// readers wait for each flushed part, and they are not small enough for the threshold to matter.
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+    private final long threshold;
+
+    public CompressionThresholdFilter(long threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        filterChain.doFilter(request, new ThresholdResponse(request, response));
+    }
+
+    private class ThresholdResponse extends HttpServletResponseWrapper {
+        private final HttpServletRequest request;
+        private ThresholdOutputStream outputStream;
+
+        ThresholdResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new ThresholdOutputStream(this, super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (outputStream == null || outputStream.mayFlush()) {
+                super.flushBuffer();
+            }
+        }
+
+        boolean isStreamed() {
+            return request.isAsyncStarted() || isNdjson(getContentType());
+        }
+    }
+
+    private static boolean isNdjson(String contentType) {
+        return contentType != null && contentType.startsWith(MediaType.APPLICATION_NDJSON_VALUE);
+    }
+
+    private class ThresholdOutputStream extends ServletOutputStream {
+        private final ThresholdResponse response;
+        private final ServletOutputStream delegate;
+        private long written;
+
+        ThresholdOutputStream(ThresholdResponse response, ServletOutputStream delegate) {
+            this.response = response;
+            this.delegate = delegate;
+        }
+
+        boolean mayFlush() {
+            return written >= threshold || response.isStreamed();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            written += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (mayFlush()) {
+                delegate.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
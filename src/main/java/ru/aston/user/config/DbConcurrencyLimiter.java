@@ -0,0 +1,105 @@
+package ru.aston.user.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+
+// Runs outside the transaction advice so a permit is held for as long as the
+// connection is, and waiting callers never sit inside Hikari's getConnection.
+// Inside a handler method the first service call takes the permit and the handler keeps it until
+// it returns: GET /users reads the version and then the page, and a second wait could time out
+// after the first query had already run. The body is written after that, so serializing it or a
+// slow client never holds a permit; a StreamingResponseBody takes its own on the async thread.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "app.db.max-concurrency")
+public class DbConcurrencyLimiter {
+    private static final ThreadLocal<Boolean> HOLDS_PERMIT = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private static final ThreadLocal<RequestScope> REQUEST = new ThreadLocal<>();
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+
+    @Autowired
+    public DbConcurrencyLimiter(@Value("${app.db.max-concurrency}") int maxConcurrency,
+                                @Value("${app.db.acquire-timeout:PT5S}") Duration acquireTimeout) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    // Reactive services return before they touch the database, and must not block the event loop
+    @Around("execution(public * ru.aston.user.service..*Service.*(..)) && !within(ru.aston.user.service.reactive..*)")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (HOLDS_PERMIT.get()) {
+            return joinPoint.proceed();
+        }
+
+        if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            throw new TransientDataAccessResourceException("Timed out waiting for a database permit");
+        }
+
+        HOLDS_PERMIT.set(Boolean.TRUE);
+        RequestScope request = REQUEST.get();
+        if (request != null) {
+            request.acquired = true;
+            return joinPoint.proceed();
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            HOLDS_PERMIT.remove();
+            permits.release();
+        }
+    }
+
+    @Around("execution(public * ru.aston.user.controller..*Controller.*(..)) "
+            + "&& !within(ru.aston.user.controller.ReactiveUserController)")
+    public Object shareAcrossHandler(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (REQUEST.get() != null) {
+            return joinPoint.proceed();
+        }
+        try (RequestScope ignored = openRequest()) {
+            return joinPoint.proceed();
+        }
+    }
+
+    // Service calls on this thread share one permit until the scope is closed
+    public RequestScope openRequest() {
+        RequestScope request = new RequestScope();
+        REQUEST.set(request);
+        return request;
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    public final class RequestScope implements AutoCloseable {
+        private boolean acquired;
+
+        private RequestScope() {
+        }
+
+        @Override
+        public void close() {
+            REQUEST.remove();
+            if (acquired) {
+                acquired = false;
+                HOLDS_PERMIT.remove();
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.aston.user.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import java.time.Duration;
+import java.util.function.ToDoubleFunction;
+
+
+// The reactive stack talks to the same database through its own R2DBC pool. Neither the pool nor its
+// transaction manager are beans: a ConnectionFactory would make Boot drop the DataSource that JPA,
+// Flyway and the outbox relay still need, and a second TransactionManager would make @Transactional
+// ambiguous, so only the DatabaseClient and the TransactionalOperators are exposed.
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig implements DisposableBean {
+    public static final String READ_ONLY_OPERATOR = "readOnlyTransactionalOperator";
+
+    private final ConnectionPool connectionPool;
+    private final R2dbcTransactionManager transactionManager;
+
+    @Autowired
+    public ReactiveConfig(@Value("${app.reactive.r2dbc.url}") String url,
+                          @Value("${app.reactive.r2dbc.username:${spring.datasource.username}}") String username,
+                          @Value("${app.reactive.r2dbc.password:${spring.datasource.password}}") String password,
+                          @Value("${app.reactive.r2dbc.pool.max-size:20}") int maxSize,
+                          @Value("${app.reactive.r2dbc.pool.max-acquire-time:PT5S}") Duration maxAcquireTime,
+                          MeterRegistry meterRegistry) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive")
+                .initialSize(0)
+                .maxSize(maxSize)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+        this.transactionManager = new R2dbcTransactionManager(connectionPool);
+        connectionPool.getMetrics().ifPresent(metrics -> {
+            gauge(meterRegistry, "r2dbc.pool.acquired", metrics, PoolMetrics::acquiredSize);
+            gauge(meterRegistry, "r2dbc.pool.idle", metrics, PoolMetrics::idleSize);
+            gauge(meterRegistry, "r2dbc.pool.pending", metrics, PoolMetrics::pendingAcquireSize);
+        });
+    }
+
+    @Bean
+    public DatabaseClient databaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Bean
+    public TransactionalOperator transactionalOperator() {
+        return TransactionalOperator.create(transactionManager);
+    }
+
+    // PostgreSQL only keeps a portal open, and so only fetches rows in batches, inside a transaction
+    @Bean(READ_ONLY_OPERATOR)
+    public TransactionalOperator readOnlyTransactionalOperator() {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setReadOnly(true);
+        return TransactionalOperator.create(transactionManager, definition);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+
+    private static void gauge(MeterRegistry meterRegistry, String name, PoolMetrics metrics,
+                              ToDoubleFunction<PoolMetrics> value) {
+        Gauge.builder(name, metrics, value).tag("pool", "reactive").register(meterRegistry);
+    }
+}
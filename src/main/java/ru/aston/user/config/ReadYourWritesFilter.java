@@ -0,0 +1,126 @@
+package ru.aston.user.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+
+// A client that has just written is pinned to the primary for the window, so replica lag
+// can never hide its own write from it. Clients that send X-Client-Id are remembered by it;
+// the remote address is no key, since behind a load balancer or NAT one write would pin
+// everybody. That map is per instance, so the write also sets a cookie holding the end of
+// the window, which pins the client on every instance and is all there is without the header.
+// POSTs that only read, like /users/lookup, are listed in readOnlyPaths and pin nobody.
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+    public static final String PINNED_UNTIL_COOKIE = "primary-until";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final ThreadLocal<Boolean> PINNED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final Cache<String, Boolean> recentWriters;
+    private final Duration window;
+    private final Set<String> readOnlyPaths;
+
+    public ReadYourWritesFilter(Duration window, long maximumClients, Set<String> readOnlyPaths) {
+        this.window = window;
+        this.readOnlyPaths = Set.copyOf(readOnlyPaths);
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maximumClients)
+                .build();
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        boolean write = isWrite(request);
+
+        // Marked before the chain runs: a read racing this request may come in right after the commit,
+        // well before the response is written, and a failed write only costs reads on the primary
+        if (write) {
+            if (clientId != null) {
+                recentWriters.put(clientId, Boolean.TRUE);
+            }
+            response.addCookie(pinnedUntilCookie(request));
+        }
+
+        boolean pinned = write
+                || (clientId != null && recentWriters.getIfPresent(clientId) != null)
+                || hasPinnedUntilCookie(request);
+        // A StreamingResponseBody reads on an async thread after this filter has returned
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ReadYourWritesFilter.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void preProcess(NativeWebRequest webRequest, Callable<T> task) {
+                        PINNED.set(pinned);
+                    }
+
+                    @Override
+                    public <T> void postProcess(NativeWebRequest webRequest, Callable<T> task, Object result) {
+                        PINNED.remove();
+                    }
+                });
+
+        PINNED.set(pinned);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            PINNED.remove();
+        }
+    }
+
+    private Cookie pinnedUntilCookie(HttpServletRequest request) {
+        Cookie cookie = new Cookie(PINNED_UNTIL_COOKIE,
+                Long.toString(System.currentTimeMillis() + window.toMillis()));
+        cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setHttpOnly(true);
+        return cookie;
+    }
+
+    // Anything past the window is ignored, so a forged cookie cannot pin a client for longer
+    private boolean hasPinnedUntilCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (Cookie cookie : cookies) {
+            if (PINNED_UNTIL_COOKIE.equals(cookie.getName())) {
+                try {
+                    long pinnedUntil = Long.parseLong(cookie.getValue());
+                    return pinnedUntil > now && pinnedUntil <= now + window.toMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isWrite(HttpServletRequest request) {
+        if (READ_METHODS.contains(request.getMethod())) {
+            return false;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !("POST".equals(request.getMethod()) && readOnlyPaths.contains(path));
+    }
+}
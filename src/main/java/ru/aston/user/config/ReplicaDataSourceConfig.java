@@ -0,0 +1,73 @@
+package ru.aston.user.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+
+// The lazy proxy only fetches a physical connection on the first statement, after the
+// transaction manager has marked it read-only, and then takes it from the replica side.
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas.urls")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(HikariDataSource primaryDataSource,
+                                                      @Value("${app.datasource.replicas.urls}") List<String> urls,
+                                                      @Value("${app.datasource.replicas.ejection:PT30S}")
+                                                      Duration ejection,
+                                                      MeterRegistry meterRegistry) {
+        List<DataSource> replicas = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setJdbcUrl(urls.get(i));
+            config.setPoolName("replica-" + i);
+            config.setReadOnly(true);
+            config.setInitializationFailTimeout(-1);
+            // Replica pools are not beans, so the actuator pool metrics would not see them otherwise
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new HikariDataSource(config));
+        }
+
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, ReadYourWritesFilter::isPinned, ejection);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${app.datasource.read-your-writes.window:PT5S}") Duration window,
+            @Value("${app.datasource.read-your-writes.maximum-clients:100000}") long maximumClients,
+            @Value("${app.datasource.read-your-writes.read-only-paths:/users/lookup}") Set<String> readOnlyPaths) {
+        return new ReadYourWritesFilter(window, maximumClients, readOnlyPaths);
+    }
+}
@@ -0,0 +1,106 @@
+package ru.aston.user.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+
+// Read-only side of the routing: hands out replica connections round-robin. A replica that
+// fails to connect is ejected for a while and the next one is tried; when none is usable, or
+// the caller has to see its own recent write, the primary serves the read.
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final BooleanSupplier pinnedToPrimary;
+    private final long ejectionNanos;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                    BooleanSupplier pinnedToPrimary, Duration ejection) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.pinnedToPrimary = pinnedToPrimary;
+        this.ejectionNanos = ejection.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (pinnedToPrimary.getAsBoolean()) {
+            return source.connect(primary);
+        }
+
+        int size = replicas.size();
+        int start = Math.floorMod(cursor.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isEjected()) {
+                continue;
+            }
+            try {
+                return source.connect(replica.dataSource);
+            } catch (SQLFeatureNotSupportedException e) {
+                // Hikari pools take no per-call credentials; that is the caller's problem, not the replica's
+                throw e;
+            } catch (SQLException e) {
+                log.warn("Ejecting read replica {} for {} ms: {}", (start + i) % size,
+                        ejectionNanos / 1_000_000, e.getMessage());
+                replica.eject(ejectionNanos);
+            }
+        }
+
+        return source.connect(primary);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> !replica.isEjected()).count();
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+        private final DataSource dataSource;
+        private final AtomicLong ejectedUntil = new AtomicLong(System.nanoTime());
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private boolean isEjected() {
+            return System.nanoTime() - ejectedUntil.get() < 0;
+        }
+
+        private void eject(long nanos) {
+            ejectedUntil.set(System.nanoTime() + nanos);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.aston.user.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import java.util.List;
+
+
+// Binary formats for service-to-service calls: Smile and CBOR through Jackson with the same mapper
+// settings as JSON, and protobuf through UserProtobufHttpMessageConverter. They go after the JSON
+// converter, so a request without a specific Accept header still gets JSON. Compression is Tomcat's,
+// with CompressionThresholdFilter making its size threshold hold.
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserFormatsConfig implements WebMvcConfigurer {
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public UserFormatsConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    // Only the user API: actuator scrapes and anything else keep their flushes as they are
+    @Bean
+    @ConditionalOnProperty(name = "server.compression.enabled", havingValue = "true")
+    public FilterRegistrationBean<CompressionThresholdFilter> compressionThresholdFilter(
+            @Value("${server.compression.min-response-size:2KB}") DataSize minResponseSize) {
+        FilterRegistrationBean<CompressionThresholdFilter> registration =
+                new FilterRegistrationBean<>(new CompressionThresholdFilter(minResponseSize.toBytes()));
+        registration.addUrlPatterns("/users/*");
+        return registration;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Spring MVC adds Smile and CBOR on its own once they are on the classpath, but with a bare ObjectMapper
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+                || converter instanceof MappingJackson2CborHttpMessageConverter);
+        converters.add(new MappingJackson2SmileHttpMessageConverter(objectMapper.copyWith(new SmileFactory())));
+        converters.add(new MappingJackson2CborHttpMessageConverter(objectMapper.copyWith(new CBORFactory())));
+        converters.add(new UserProtobufHttpMessageConverter());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // The body and the per-user ETag both depend on Accept, so caches have to key on it as well
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                return true;
+            }
+        }).addPathPatterns("/users", "/users/**");
+    }
+}
@@ -0,0 +1,93 @@
+package ru.aston.user.config;
+
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.dto.UserLookupResult;
+import ru.aston.user.util.UserErrorResponse;
+import ru.aston.user.util.UserProtobuf;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+
+// application/x-protobuf for the /users payloads described in proto/users.proto.
+// Only UserDTO bodies are read; lists, lookups and error bodies are written straight to the response.
+public class UserProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final int BUFFER_SIZE = 8192;
+
+    public UserProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == UserDTO.class || clazz == UserLookupResult.class || clazz == UserErrorResponse.class;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return clazz == UserDTO.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return type == UserDTO.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (supports(clazz) || isUserList(type)) && canWrite(mediaType);
+    }
+
+    // Content negotiation only knows the runtime class of a list, so lists are offered here and checked in canWrite
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return supports(clazz) || List.class.isAssignableFrom(clazz) ? getSupportedMediaTypes() : List.of();
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readInternal(UserDTO.class, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return UserProtobuf.readUser(CodedInputStream.newInstance(inputMessage.getBody(), BUFFER_SIZE));
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Malformed protobuf: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(outputMessage.getBody(), BUFFER_SIZE);
+        switch (body) {
+            case UserDTO user -> UserProtobuf.writeUser(out, user);
+            case UserLookupResult result -> UserProtobuf.writeLookupResult(out, result);
+            case UserErrorResponse error -> UserProtobuf.writeError(out, error);
+            default -> UserProtobuf.writeUsers(out, (List<UserDTO>) body);
+        }
+        out.flush();
+    }
+
+    private static boolean isUserList(Type type) {
+        if (type == null) {
+            return false;
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        return List.class.isAssignableFrom(resolved.toClass())
+                && resolved.getGeneric(0).toClass() == UserDTO.class;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.aston.user.config;
+
+import ru.aston.user.dto.UserBatchItemResult;
+import ru.aston.user.dto.UserBatchResult;
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.dto.UserSearchCriteria;
+import ru.aston.user.outbox.UserEvent;
+import ru.aston.user.repository.UsersVersion;
+import ru.aston.user.util.UserErrorResponse;
+
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+
+// Spring AOT already covers controller signatures, JPA entities and repository projections;
+// these are the types that are only reached reflectively from our own code or from config.
+public class UserRuntimeHints implements RuntimeHintsRegistrar {
+    private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // Jackson: NDJSON readers/writers, outbox payloads, error bodies and @ModelAttribute binding
+        bindingHints.registerReflectionHints(hints.reflection(), UserDTO.class, UserEvent.class,
+                UserErrorResponse.class, UserBatchResult.class, UserBatchItemResult.class, UserSearchCriteria.class);
+
+        // Hibernate calls the JPQL constructor expression reflectively
+        hints.reflection().registerType(UsersVersion.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+        // Kafka instantiates the serializers named in spring.kafka.producer.* by class name
+        hints.reflection().registerType(JsonSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(StringSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
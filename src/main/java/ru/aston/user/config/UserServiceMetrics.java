@@ -0,0 +1,76 @@
+package ru.aston.user.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+// Meters are cached per method/exception pair so the hot path skips the registry lookup.
+// Percentiles and histogram buckets come from management.metrics.distribution.* properties.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class UserServiceMetrics {
+    public static final String TIMER_NAME = "user.service";
+    public static final String ROWS_NAME = "user.service.rows";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rows = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UserServiceMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * ru.aston.user.service.core.UserService.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        long start = System.nanoTime();
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed();
+            recordRows(method, result);
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            timer(method, exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void recordRows(String method, Object result) {
+        if (result instanceof Collection<?> collection) {
+            rowsSummary(method).record(collection.size());
+        } else if (result != null) {
+            rowsSummary(method).record(1);
+        }
+    }
+
+    private Timer timer(String method, String exception) {
+        return timers.computeIfAbsent(method + '|' + exception, key -> Timer.builder(TIMER_NAME)
+                .description("UserService call latency")
+                .tag("method", method)
+                .tag("exception", exception)
+                .register(meterRegistry));
+    }
+
+    private DistributionSummary rowsSummary(String method) {
+        return rows.computeIfAbsent(method, key -> DistributionSummary.builder(ROWS_NAME)
+                .description("Rows returned by UserService calls")
+                .tag("method", method)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,140 @@
+package ru.aston.user.controller;
+
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.entity.User;
+import ru.aston.user.mapper.UserMapper;
+import ru.aston.user.service.reactive.ReactiveUserService;
+import ru.aston.user.util.ETags;
+import ru.aston.user.util.UserFormat;
+import ru.aston.user.util.UserErrorResponse;
+import ru.aston.user.util.UserNotCreatedException;
+import ru.aston.user.util.UserNotUpdatedException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.util.List;
+import java.util.Set;
+
+
+// The core /users API of UserController on WebFlux, served when the app runs as a reactive web
+// application (the reactive profile). Search, batch, import and export stay servlet-only.
+@RestController
+@RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+    private final ReactiveUserService userService;
+    private final UserMapper userMapper;
+    private final Validator validator;
+
+    @Autowired
+    public ReactiveUserController(ReactiveUserService userService, UserMapper userMapper, Validator validator) {
+        this.userService = userService;
+        this.userMapper = userMapper;
+        this.validator = validator;
+    }
+
+    @GetMapping()
+    public Mono<ResponseEntity<List<UserDTO>>> getAllUsers(
+            @RequestParam(value = "after", defaultValue = "0") int after,
+            @RequestParam(value = "limit", defaultValue = "" + UserController.DEFAULT_PAGE_SIZE) int limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        int pageSize = Math.max(1, Math.min(limit, UserController.MAX_PAGE_SIZE));
+
+        // As in UserController, the version is read before the page
+        return userService.getUsersVersion().flatMap(version -> {
+            String eTag = UserController.usersETag(version);
+            if (ETags.matches(ifNoneMatch, eTag)) {
+                return Mono.just(UserController.withVersion(ResponseEntity.status(HttpStatus.NOT_MODIFIED), eTag, version)
+                        .<List<UserDTO>>build());
+            }
+
+            return userService.getUsersPage(after, pageSize)
+                    .map(userMapper::toDTO)
+                    .collectList()
+                    .map(page -> UserController.pageResponse(
+                            UserController.withVersion(ResponseEntity.ok(), eTag, version), page, pageSize));
+        });
+    }
+
+    // Each line is encoded and written as the connection drains, and only then is the next row requested
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserDTO> streamAllUsers() {
+        return userService.streamAllUsers().map(userMapper::toDTO);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<UserDTO>> getUserById(
+            @PathVariable("id") int id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        UserFormat format = UserFormat.negotiate(accept);
+        Mono<ResponseEntity<UserDTO>> notModified = ifNoneMatch == null
+                ? Mono.empty()
+                : userService.getUserVersion(id)
+                        .map(format::eTag)
+                        .filter(eTag -> ETags.matches(ifNoneMatch, eTag))
+                        .map(eTag -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build());
+
+        return notModified.switchIfEmpty(Mono.defer(() -> userService.getUserById(id)
+                .map(user -> ResponseEntity.ok()
+                        .eTag(format.eTag(user.getVersion()))
+                        .body(userMapper.toDTO(user)))));
+    }
+
+    @PostMapping()
+    public Mono<ResponseEntity<UserDTO>> createUser(@RequestBody UserDTO userDTO) {
+        Set<ConstraintViolation<UserDTO>> violations = validator.validate(userDTO, UserDTO.OnCreate.class, Default.class);
+        if (!violations.isEmpty()) {
+            throw new UserNotCreatedException(UserErrorResponse.getErrorMessage(violations));
+        }
+
+        return userService.createUser(userMapper.toEntity(userDTO))
+                .map(createdUser -> new ResponseEntity<>(userMapper.toDTO(createdUser), HttpStatus.CREATED));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<UserDTO>> updateUser(@PathVariable("id") int id,
+                                                    @RequestBody UserDTO userDTO,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                    String ifMatch,
+                                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                    String accept) {
+        Set<ConstraintViolation<UserDTO>> violations = validator.validate(userDTO, UserDTO.OnUpdate.class, Default.class);
+        if (!violations.isEmpty()) {
+            throw new UserNotUpdatedException(UserErrorResponse.getErrorMessage(violations));
+        }
+
+        User user = userMapper.toEntity(userDTO);
+        user.setVersion(UserController.expectedVersion(ifMatch));
+
+        return userService.updateUser(id, user)
+                .map(updatedUser -> ResponseEntity.ok()
+                        .eTag(UserFormat.negotiate(accept).eTag(updatedUser.getVersion()))
+                        .body(userMapper.toDTO(updatedUser)));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<String>> delete(@PathVariable int id) {
+        return userService.deleteUser(id)
+                .thenReturn(ResponseEntity.ok().body("User deleted successfully"));
+    }
+}
@@ -1,55 +1,184 @@
 package ru.aston.user.controller;
 
+import ru.aston.user.dto.UserBatchResult;
 import ru.aston.user.dto.UserDTO;
+import ru.aston.user.dto.UserLookupResult;
+import ru.aston.user.dto.UserSearchCriteria;
 import ru.aston.user.entity.User;
+import ru.aston.user.mapper.UserMapper;
+import ru.aston.user.repository.UsersVersion;
+import ru.aston.user.service.batch.UserBatchService;
+import ru.aston.user.service.core.UserLookup;
 import ru.aston.user.service.core.UserService;
+import ru.aston.user.util.ETags;
+import ru.aston.user.util.UserFormat;
 import ru.aston.user.util.UserErrorResponse;
+import ru.aston.user.util.UserLookupException;
 import ru.aston.user.util.UserNotCreatedException;
 import ru.aston.user.util.UserNotUpdatedException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.validation.BindingResult;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.groups.Default;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 
 @RestController
 @RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final UserService userService;
-    private final ModelMapper modelMapper;
+    private final UserBatchService userBatchService;
+    private final UserMapper userMapper;
+    private final ObjectReader ndjsonReader;
+    private final ObjectWriter userStreamWriter;
 
     @Autowired
-    public UserController(UserService userService, ModelMapper modelMapper) {
+    public UserController(UserService userService, UserBatchService userBatchService,
+                          UserMapper userMapper, ObjectMapper objectMapper) {
         this.userService = userService;
-        this.modelMapper = modelMapper;
+        this.userBatchService = userBatchService;
+        this.userMapper = userMapper;
+        this.ndjsonReader = objectMapper.readerFor(UserDTO.class);
+        // Writes NDJSON lines and JSON array elements alike; inside an array the generator adds the commas
+        this.userStreamWriter = objectMapper.writerFor(UserDTO.class)
+                .withRootValueSeparator((String) null)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @GetMapping()
-    public List<UserDTO> getAllUsers() {
-        return userService.getAllUsers().stream()
-                                        .map(this::convertToUserDTO)
-                                        .toList();
+    public ResponseEntity<List<UserDTO>> getAllUsers(
+            @RequestParam(value = "after", defaultValue = "0") int after,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // The collection version is read before the page, so a write racing the read can only
+        // make the ETag older than the body and cost the client one extra full response.
+        UsersVersion version = userService.getUsersVersion();
+        String eTag = usersETag(version);
+        if (ETags.matches(ifNoneMatch, eTag)) {
+            return withVersion(ResponseEntity.status(HttpStatus.NOT_MODIFIED), eTag, version).build();
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<UserDTO> page = userMapper.toDTOList(userService.getUsersPage(after, pageSize));
+
+        return pageResponse(withVersion(ResponseEntity.ok(), eTag, version), page, pageSize);
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<UserLookupResult> getUsersByIds(@RequestParam("ids") List<Integer> ids) {
+        return ResponseEntity.ok(lookUp(ids));
+    }
+
+    @PostMapping(value = "/lookup", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UserLookupResult> lookUpUsers(@RequestBody List<Integer> ids) {
+        return ResponseEntity.ok(lookUp(ids));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<UserDTO>> searchUsers(
+            @ModelAttribute UserSearchCriteria criteria,
+            @RequestParam(value = "after", defaultValue = "0") int after,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<UserDTO> page = userMapper.viewsToDTOList(userService.searchUsers(criteria, after, pageSize));
+
+        return pageResponse(ResponseEntity.ok(), page, pageSize);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = userStreamWriter.createGenerator(outputStream)) {
+                userService.streamAllUsers(user -> writeNdjsonLine(generator, convertToUserDTO(user)));
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // The whole collection as one JSON array, written from the cursor as it is read: neither the DTOs
+    // nor the serialized body are ever held in full, and the version check works as for pages
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsersAsJson(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        UsersVersion version = userService.getUsersVersion();
+        String eTag = usersETag(version);
+        if (ETags.matches(ifNoneMatch, eTag)) {
+            return withVersion(ResponseEntity.status(HttpStatus.NOT_MODIFIED), eTag, version).build();
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = userStreamWriter.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                userService.streamAllUsers(user -> writeArrayElement(generator, convertToUserDTO(user)));
+                generator.writeEndArray();
+            }
+        };
+
+        return withVersion(ResponseEntity.ok(), eTag, version)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
-    public UserDTO getUserById(@PathVariable("id") int id) {
-        return convertToUserDTO(userService.getUserById(id));
+    public ResponseEntity<UserDTO> getUserById(
+            @PathVariable("id") int id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        UserFormat format = UserFormat.negotiate(accept);
+        if (ifNoneMatch != null) {
+            String eTag = format.eTag(userService.getUserVersion(id));
+            if (ETags.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
+
+        User user = userService.getUserById(id);
+
+        return ResponseEntity.ok()
+                .eTag(format.eTag(user.getVersion()))
+                .body(convertToUserDTO(user));
     }
 
     @PostMapping()
-    public ResponseEntity<UserDTO> createUser(@RequestBody @Valid UserDTO userDTO,
+    public ResponseEntity<UserDTO> createUser(@RequestBody @Validated({UserDTO.OnCreate.class, Default.class})
+                                              UserDTO userDTO,
                                               BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
             throw new UserNotCreatedException(UserErrorResponse.getErrorMessage(bindingResult));
@@ -60,17 +189,46 @@ public class UserController {
         return new ResponseEntity<>(convertToUserDTO(createdUser), HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UserBatchResult> createUsers(@RequestBody List<UserDTO> userDTOs) {
+        return ResponseEntity.ok(userBatchService.createUsers(userDTOs.iterator()));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<UserBatchResult> createUsersFromNdjson(InputStream body) throws IOException {
+        try (MappingIterator<UserDTO> userDTOs = ndjsonReader.readValues(body)) {
+            return ResponseEntity.ok(userBatchService.createUsers(userDTOs));
+        } catch (RuntimeJsonMappingException | JsonProcessingException e) {
+            throw new UserNotCreatedException("Malformed NDJSON: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // MappingIterator rethrows parser failures wrapped in a plain RuntimeException
+            if (e.getCause() instanceof JsonProcessingException cause) {
+                throw new UserNotCreatedException("Malformed NDJSON: " + cause.getOriginalMessage());
+            }
+            throw e;
+        }
+    }
+
     @PatchMapping("/{id}")
     public ResponseEntity<UserDTO> updateUser (@PathVariable("id") int id,
-                                               @RequestBody @Valid UserDTO userDTO,
-                                               BindingResult bindingResult) {
+                                               @RequestBody @Validated({UserDTO.OnUpdate.class, Default.class})
+                                               UserDTO userDTO,
+                                               BindingResult bindingResult,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                               String ifMatch,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                               String accept) {
         if (bindingResult.hasErrors()) {
             throw new UserNotUpdatedException(UserErrorResponse.getErrorMessage(bindingResult));
         }
 
-        User updatedUser = userService.updateUser(id, convertToUser(userDTO));
+        User user = convertToUser(userDTO);
+        user.setVersion(expectedVersion(ifMatch));
+        User updatedUser = userService.updateUser(id, user);
 
-        return new ResponseEntity<>(convertToUserDTO(updatedUser), HttpStatus.OK);
+        return ResponseEntity.ok()
+                .eTag(UserFormat.negotiate(accept).eTag(updatedUser.getVersion()))
+                .body(convertToUserDTO(updatedUser));
     }
 
     @DeleteMapping("/{id}")
@@ -80,11 +238,83 @@ public class UserController {
         return ResponseEntity.ok().body("User deleted successfully");
     }
 
+    private UserLookupResult lookUp(List<Integer> ids) {
+        if (ids.size() > MAX_PAGE_SIZE) {
+            throw new UserLookupException("At most " + MAX_PAGE_SIZE + " ids can be looked up at once, got " + ids.size());
+        }
+        for (Integer id : ids) {
+            if (id == null) {
+                throw new UserLookupException("Ids should not contain null");
+            }
+        }
+
+        UserLookup lookup = userService.getUsersByIds(ids);
+        return new UserLookupResult(userMapper.toDTOList(lookup.users()), lookup.missing());
+    }
+
+    // The tag of any representation will do: it starts with the version, and only that is compared
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String value = ETags.strongValue(ifMatch);
+        if (value != null) {
+            try {
+                return Long.valueOf(value.split("-", 2)[0]);
+            } catch (NumberFormatException e) {
+                // reported below like any other malformed tag
+            }
+        }
+        throw new UserNotUpdatedException("If-Match should hold a single user ETag, got " + ifMatch);
+    }
+
+    // Weak: the version says the collection is unchanged, not that the bytes are, which differ by format and
+    // encoding. Tomcat also refuses to compress a response that carries a strong ETag.
+    static String usersETag(UsersVersion version) {
+        return ETags.weakOf(version.changes());
+    }
+
+    static ResponseEntity.BodyBuilder withVersion(ResponseEntity.BodyBuilder response, String eTag,
+                                                          UsersVersion version) {
+        response.eTag(eTag);
+        if (version.lastModified() != null) {
+            response.lastModified(version.lastModified());
+        }
+        return response;
+    }
+
+    static ResponseEntity<List<UserDTO>> pageResponse(ResponseEntity.BodyBuilder response,
+                                                      List<UserDTO> page, int pageSize) {
+        if (page.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+        }
+
+        return response.body(page);
+    }
+
+    private void writeNdjsonLine(JsonGenerator generator, UserDTO userDTO) {
+        try {
+            userStreamWriter.writeValue(generator, userDTO);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeArrayElement(JsonGenerator generator, UserDTO userDTO) {
+        try {
+            userStreamWriter.writeValue(generator, userDTO);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private User convertToUser(UserDTO userDTO) {
-        return modelMapper.map(userDTO, User.class);
+        return userMapper.toEntity(userDTO);
     }
 
     private UserDTO convertToUserDTO(User user) {
-        return modelMapper.map(user, UserDTO.class);
+        return userMapper.toDTO(user);
     }
 }
@@ -0,0 +1,112 @@
+package ru.aston.user.controller;
+
+import ru.aston.user.dto.UserExportDTO;
+import ru.aston.user.service.export.UserExportFormat;
+import ru.aston.user.service.export.UserExportJob;
+import ru.aston.user.service.export.UserExportService;
+import ru.aston.user.util.UserConflictException;
+import ru.aston.user.util.UserExportException;
+import ru.aston.user.util.UserNotFoundException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/users/exports")
+public class UserExportController {
+    public static final String GZIP_CONTENT_TYPE = "application/gzip";
+
+    // Tomcat's sendfile contract: the connector streams the file to the socket itself with
+    // FileChannel.transferTo once the handler returns without writing a body.
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final UserExportService userExportService;
+
+    @Autowired
+    public UserExportController(UserExportService userExportService) {
+        this.userExportService = userExportService;
+    }
+
+    @PostMapping()
+    public ResponseEntity<UserExportDTO> startExport(
+            @RequestParam(value = "format", defaultValue = "csv") String format) {
+        UserExportJob job = userExportService.start(exportFormat(format));
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/users/exports/" + job.getId()))
+                .body(toDTO(job));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<UserExportDTO> getExport(@PathVariable("jobId") String jobId) {
+        return ResponseEntity.ok(toDTO(userExportService.getJob(jobId)));
+    }
+
+    @GetMapping("/{jobId}/file")
+    public void downloadExport(@PathVariable("jobId") String jobId,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UserExportJob job = userExportService.getJob(jobId);
+        if (!job.isCompleted()) {
+            throw new UserConflictException("Export " + jobId + " is " + job.getStatus().name().toLowerCase());
+        }
+
+        Path file = job.getFile();
+        try (FileChannel channel = FileChannel.open(file)) {
+            long size = channel.size();
+            response.setContentType(GZIP_CONTENT_TYPE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString());
+            response.setContentLengthLong(size);
+
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, size);
+                return;
+            }
+
+            // No sendfile (TLS, other containers): transferTo to a stream-backed channel copies through a buffer
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            for (long position = 0; position < size; ) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        } catch (NoSuchFileException e) {
+            throw new UserNotFoundException("Export " + jobId + " has expired");
+        }
+    }
+
+    private static UserExportFormat exportFormat(String format) {
+        try {
+            return UserExportFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            throw new UserExportException("Unsupported export format " + format + ", expected csv or ndjson");
+        }
+    }
+
+    private static UserExportDTO toDTO(UserExportJob job) {
+        return UserExportDTO.of(job, "/users/exports/" + job.getId() + "/file");
+    }
+}
@@ -0,0 +1,59 @@
+package ru.aston.user.controller;
+
+import ru.aston.user.dto.UserImportResult;
+import ru.aston.user.service.batch.UserImportService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+
+// The upload is read straight from the request body rather than as a multipart part, which the
+// container would spool to disk first; a gzip export can be sent back as is with Content-Encoding: gzip.
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/users/import")
+public class UserImportController {
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final UserImportService userImportService;
+
+    @Autowired
+    public UserImportController(UserImportService userImportService) {
+        this.userImportService = userImportService;
+    }
+
+    @PostMapping(consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<UserImportResult> importCsv(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding)
+            throws IOException {
+        return toResponse(userImportService.importCsv(decode(body, contentEncoding)));
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<UserImportResult> importNdjson(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding)
+            throws IOException {
+        return toResponse(userImportService.importNdjson(decode(body, contentEncoding)));
+    }
+
+    // Chunks before the failure stay committed, so the client gets the counts with the 400
+    private static ResponseEntity<UserImportResult> toResponse(UserImportResult result) {
+        return result.getFailure() == null ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+    }
+
+    private static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        return "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, 65536) : body;
+    }
+}
@@ -0,0 +1,44 @@
+package ru.aston.user.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+
+public class UserBatchItemResult {
+    public enum Status { CREATED, INVALID, DUPLICATE }
+
+    @Getter @Setter
+    private int index;
+
+    @Getter @Setter
+    private Status status;
+
+    @Getter @Setter
+    private Integer id;
+
+    @Getter @Setter
+    private String message;
+
+    public UserBatchItemResult() {
+    }
+
+    public UserBatchItemResult(int index, Status status, Integer id, String message) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+
+    public static UserBatchItemResult created(int index, Integer id) {
+        return new UserBatchItemResult(index, Status.CREATED, id, null);
+    }
+
+    public static UserBatchItemResult invalid(int index, String message) {
+        return new UserBatchItemResult(index, Status.INVALID, null, message);
+    }
+
+    public static UserBatchItemResult duplicate(int index, String email) {
+        return new UserBatchItemResult(index, Status.DUPLICATE, null,
+                "User with this email " + email + " already exists");
+    }
+}
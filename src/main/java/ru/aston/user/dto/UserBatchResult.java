@@ -0,0 +1,26 @@
+package ru.aston.user.dto;
+
+import lombok.Getter;
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class UserBatchResult {
+    @Getter
+    private int created;
+
+    @Getter
+    private int failed;
+
+    @Getter
+    private final List<UserBatchItemResult> items = new ArrayList<>();
+
+    public void add(UserBatchItemResult item) {
+        if (item.getStatus() == UserBatchItemResult.Status.CREATED) {
+            created++;
+        } else {
+            failed++;
+        }
+        items.add(item);
+    }
+}
@@ -4,23 +4,28 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
 
 
 public class UserDTO {
+    public interface OnCreate {}
+    public interface OnUpdate {}
+
     @Getter @Setter
     private Integer id;
 
     @Getter @Setter
-    @NotEmpty(message = "Name could not be empty")
+    @NotEmpty(message = "Name could not be empty", groups = OnCreate.class)
     @Size(min = 2, max = 30, message = "Name should be between 2 and 30 chars")
     private String name;
 
     @Getter @Setter
     @Email(message = "Email should be valid")
-    @NotEmpty(message = "Email should not be empty")
+    @NotEmpty(message = "Email should not be empty", groups = OnCreate.class)
+    @Pattern(regexp = ".*\\S.*", message = "Email should not be empty", groups = OnUpdate.class)
     private String email;
 
     @Getter @Setter
@@ -0,0 +1,55 @@
+package ru.aston.user.dto;
+
+import ru.aston.user.service.export.UserExportJob;
+
+import java.time.Instant;
+import lombok.Getter;
+import lombok.Setter;
+
+
+public class UserExportDTO {
+    @Getter @Setter
+    private String id;
+
+    @Getter @Setter
+    private String format;
+
+    @Getter @Setter
+    private UserExportJob.Status status;
+
+    @Getter @Setter
+    private long rowsWritten;
+
+    @Getter @Setter
+    private long totalRows;
+
+    @Getter @Setter
+    private long sizeBytes;
+
+    @Getter @Setter
+    private Instant createdAt;
+
+    @Getter @Setter
+    private Instant finishedAt;
+
+    @Getter @Setter
+    private String error;
+
+    @Getter @Setter
+    private String downloadUrl;
+
+    public static UserExportDTO of(UserExportJob job, String downloadUrl) {
+        UserExportDTO exportDTO = new UserExportDTO();
+        exportDTO.setId(job.getId());
+        exportDTO.setFormat(job.getFormat().name().toLowerCase());
+        exportDTO.setStatus(job.getStatus());
+        exportDTO.setRowsWritten(job.getRowsWritten());
+        exportDTO.setTotalRows(job.getTotalRows());
+        exportDTO.setSizeBytes(job.getSizeBytes());
+        exportDTO.setCreatedAt(job.getCreatedAt());
+        exportDTO.setFinishedAt(job.getFinishedAt());
+        exportDTO.setError(job.getError());
+        exportDTO.setDownloadUrl(job.isCompleted() ? downloadUrl : null);
+        return exportDTO;
+    }
+}
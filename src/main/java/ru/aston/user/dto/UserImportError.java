@@ -0,0 +1,25 @@
+package ru.aston.user.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+
+public class UserImportError {
+    @Getter @Setter
+    private int line;
+
+    @Getter @Setter
+    private UserBatchItemResult.Status status;
+
+    @Getter @Setter
+    private String message;
+
+    public UserImportError() {
+    }
+
+    public UserImportError(int line, UserBatchItemResult.Status status, String message) {
+        this.line = line;
+        this.status = status;
+        this.message = message;
+    }
+}
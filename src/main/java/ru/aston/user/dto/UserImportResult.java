@@ -0,0 +1,81 @@
+package ru.aston.user.dto;
+
+import lombok.Getter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+
+// Counters cover every line; the error list stops growing at maxErrors so that a file
+// full of bad rows cannot turn the report into a copy of the upload.
+public class UserImportResult {
+    @Getter
+    private long received;
+
+    @Getter
+    private long created;
+
+    @Getter
+    private long invalid;
+
+    @Getter
+    private long duplicates;
+
+    @Getter
+    private long elapsedMillis;
+
+    @Getter
+    private double rowsPerSecond;
+
+    @Getter
+    private boolean errorsTruncated;
+
+    // Set when the upload could not be read to the end; the counters then cover the lines before it
+    @Getter
+    private String failure;
+
+    @Getter
+    private final List<UserImportError> errors = new ArrayList<>();
+
+    private final int maxErrors;
+
+    public UserImportResult(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void addCreated(int count) {
+        received += count;
+        created += count;
+    }
+
+    public void addInvalid(int line, String message) {
+        invalid++;
+        addError(new UserImportError(line, UserBatchItemResult.Status.INVALID, message));
+    }
+
+    public void addDuplicate(int line, String email) {
+        duplicates++;
+        addError(new UserImportError(line, UserBatchItemResult.Status.DUPLICATE,
+                "User with this email " + email + " already exists"));
+    }
+
+    public void abort(int lastLine, String message) {
+        failure = "Upload could not be read after line " + lastLine + ": " + message
+                + "; the lines before it have been imported";
+    }
+
+    public void finish(long elapsedNanos) {
+        errors.sort(Comparator.comparingInt(UserImportError::getLine));
+        elapsedMillis = elapsedNanos / 1_000_000;
+        rowsPerSecond = elapsedNanos == 0 ? 0 : received * 1e9 / elapsedNanos;
+    }
+
+    private void addError(UserImportError error) {
+        received++;
+        if (errors.size() < maxErrors) {
+            errors.add(error);
+        } else {
+            errorsTruncated = true;
+        }
+    }
+}
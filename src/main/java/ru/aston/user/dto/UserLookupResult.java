@@ -0,0 +1,22 @@
+package ru.aston.user.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import java.util.List;
+
+
+public class UserLookupResult {
+    @Getter @Setter
+    private List<UserDTO> users;
+
+    @Getter @Setter
+    private List<Integer> missing;
+
+    public UserLookupResult() {
+    }
+
+    public UserLookupResult(List<UserDTO> users, List<Integer> missing) {
+        this.users = users;
+        this.missing = missing;
+    }
+}
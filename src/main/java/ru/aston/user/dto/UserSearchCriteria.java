@@ -0,0 +1,33 @@
+package ru.aston.user.dto;
+
+import ru.aston.user.repository.UserView;
+
+
+public record UserSearchCriteria(String email, String namePrefix, Integer minAge, Integer maxAge) {
+
+    public boolean hasName() {
+        return namePrefix != null && !namePrefix.isEmpty();
+    }
+
+    public boolean hasAgeRange() {
+        return minAge != null || maxAge != null;
+    }
+
+    public int ageFrom() {
+        return minAge == null ? 0 : minAge;
+    }
+
+    public int ageTo() {
+        return maxAge == null ? Integer.MAX_VALUE : maxAge;
+    }
+
+    public boolean matches(UserView user) {
+        if (hasName() && !user.getName().startsWith(namePrefix)) {
+            return false;
+        }
+        if (hasAgeRange()) {
+            return user.getAge() != null && user.getAge() >= ageFrom() && user.getAge() <= ageTo();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.aston.user.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.Setter;
+
+
+@Entity
+@Table(name = "user_outbox",
+        indexes = @Index(name = "user_outbox_sent_at_sequence_number_idx", columnList = "sent_at, sequence_number"))
+public class OutboxEvent {
+    @Getter @Setter
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_outbox_id_seq")
+    @SequenceGenerator(name = "user_outbox_id_seq", sequenceName = "user_outbox_id_seq", allocationSize = 50)
+    private Long id;
+
+    // Left to the column default, which numbers a user's events in commit order (see V6)
+    @Getter @Setter
+    @Column(name = "sequence_number", insertable = false, updatable = false)
+    private Long sequenceNumber;
+
+    @Getter @Setter
+    @Column(name = "aggregate_id", nullable = false)
+    private Integer aggregateId;
+
+    @Getter @Setter
+    @Column(name = "event_type", nullable = false, length = 16)
+    private String eventType;
+
+    @Getter @Setter
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Getter @Setter
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Getter @Setter
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
+    public OutboxEvent() {
+    }
+
+    public OutboxEvent(Integer aggregateId, String eventType, String payload, Instant createdAt) {
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+}
@@ -1,24 +1,36 @@
 package ru.aston.user.entity;
 
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import lombok.Getter;
 import lombok.Setter;
 
 
 @Entity
-@Table(name="users", uniqueConstraints = @UniqueConstraint(columnNames = "email"))
+// The schema comes from db/migration; the indexes are repeated here for readers, and
+// users_name_pattern_idx (name text_pattern_ops) only exists there since JPA cannot express operator classes
+@Table(name="users", uniqueConstraints = @UniqueConstraint(columnNames = "email"),
+        indexes = {
+                @Index(name = "users_age_idx", columnList = "age"),
+                @Index(name = "users_updated_at_idx", columnList = "updated_at")
+        })
 public class User {
     @Getter @Setter
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Integer id;
 
     @Getter @Setter
@@ -38,6 +50,16 @@ public class User {
     @Column(name = "created_at", columnDefinition = "TIMESTAMP(0)")
     private LocalDateTime createdAt;
 
+    @Getter @Setter
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Getter @Setter
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public User() {
     }
 
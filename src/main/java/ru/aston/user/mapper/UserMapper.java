@@ -0,0 +1,54 @@
+package ru.aston.user.mapper;
+
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.entity.User;
+import ru.aston.user.repository.UserView;
+
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+
+
+@Component
+public class UserMapper {
+
+    public UserDTO toDTO(User user) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(user.getId());
+        userDTO.setName(user.getName());
+        userDTO.setEmail(user.getEmail());
+        userDTO.setAge(user.getAge());
+        return userDTO;
+    }
+
+    public UserDTO toDTO(UserView user) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(user.getId());
+        userDTO.setName(user.getName());
+        userDTO.setEmail(user.getEmail());
+        userDTO.setAge(user.getAge());
+        return userDTO;
+    }
+
+    public User toEntity(UserDTO userDTO) {
+        User user = new User(userDTO.getName(), userDTO.getEmail(), userDTO.getAge());
+        user.setId(userDTO.getId());
+        return user;
+    }
+
+    public List<UserDTO> toDTOList(List<User> users) {
+        List<UserDTO> userDTOs = new ArrayList<>(users.size());
+        for (User user : users) {
+            userDTOs.add(toDTO(user));
+        }
+        return userDTOs;
+    }
+
+    public List<UserDTO> viewsToDTOList(List<UserView> users) {
+        List<UserDTO> userDTOs = new ArrayList<>(users.size());
+        for (UserView user : users) {
+            userDTOs.add(toDTO(user));
+        }
+        return userDTOs;
+    }
+}
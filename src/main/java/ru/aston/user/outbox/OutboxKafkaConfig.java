@@ -0,0 +1,23 @@
+package ru.aston.user.outbox;
+
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+
+@Configuration
+public class OutboxKafkaConfig {
+
+    // Outbox payloads are stored as ready-made JSON, so they go out as-is instead of
+    // through the globally configured JsonSerializer.
+    @Bean
+    public KafkaTemplate<String, String> outboxKafkaTemplate(KafkaProperties kafkaProperties) {
+        DefaultKafkaProducerFactory<String, String> producerFactory = new DefaultKafkaProducerFactory<>(
+                kafkaProperties.buildProducerProperties(null), new StringSerializer(), new StringSerializer());
+
+        return new KafkaTemplate<>(producerFactory);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.aston.user.outbox;
+
+import ru.aston.user.entity.OutboxEvent;
+import ru.aston.user.entity.User;
+import ru.aston.user.repository.PooledSequence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import java.time.Instant;
+
+
+// Writes the same rows as UserOutbox, so UserOutboxRelay publishes them without knowing which stack
+// recorded them. Like UserOutbox it has to be called inside the transaction of the user change.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserOutbox {
+    // Must match allocationSize of user_outbox_id_seq on OutboxEvent
+    private static final int ID_ALLOCATION_SIZE = 50;
+    private static final String INSERT = """
+            INSERT INTO user_outbox (id, aggregate_id, event_type, payload, created_at)
+            VALUES (:id, :aggregateId, :eventType, :payload, :createdAt)
+            """;
+
+    private final DatabaseClient databaseClient;
+    private final UserOutbox userOutbox;
+    private final PooledSequence ids;
+
+    @Autowired
+    public ReactiveUserOutbox(DatabaseClient databaseClient, UserOutbox userOutbox) {
+        this.databaseClient = databaseClient;
+        this.userOutbox = userOutbox;
+        this.ids = new PooledSequence(databaseClient, "user_outbox_id_seq", ID_ALLOCATION_SIZE);
+    }
+
+    public Mono<Void> record(UserEventType type, User user) {
+        return Mono.defer(() -> insert(userOutbox.toOutboxEvent(type, user.getId(), user, Instant.now())));
+    }
+
+    public Mono<Void> recordDeleted(Integer userId) {
+        return Mono.defer(() -> insert(userOutbox.toOutboxEvent(UserEventType.DELETED, userId, null, Instant.now())));
+    }
+
+    private Mono<Void> insert(OutboxEvent event) {
+        return ids.nextId()
+                .flatMap(id -> databaseClient.sql(INSERT)
+                        .bind("id", id)
+                        .bind("aggregateId", event.getAggregateId())
+                        .bind("eventType", event.getEventType())
+                        .bind("payload", event.getPayload())
+                        .bind("createdAt", event.getCreatedAt())
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+}
@@ -0,0 +1,8 @@
+package ru.aston.user.outbox;
+
+import java.time.Instant;
+
+
+public record UserEvent(UserEventType type, Integer userId, String name, String email, Integer age,
+                        Instant occurredAt) {
+}
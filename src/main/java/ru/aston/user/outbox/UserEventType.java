@@ -0,0 +1,8 @@
+package ru.aston.user.outbox;
+
+
+public enum UserEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,97 @@
+package ru.aston.user.outbox;
+
+import ru.aston.user.entity.OutboxEvent;
+import ru.aston.user.entity.User;
+import ru.aston.user.repository.OutboxEventRepository;
+import ru.aston.user.repository.PgBulk;
+import ru.aston.user.util.Csv;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+
+@Component
+public class UserOutbox {
+    // Must match allocationSize of user_outbox_id_seq on OutboxEvent
+    private static final int ID_ALLOCATION_SIZE = 50;
+    private static final String COPY_OUTBOX =
+            "COPY user_outbox (id, aggregate_id, event_type, payload, created_at) FROM STDIN (FORMAT csv)";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectWriter eventWriter;
+
+    @Autowired
+    public UserOutbox(OutboxEventRepository outboxEventRepository, JdbcTemplate jdbcTemplate,
+                      ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventWriter = objectMapper.writerFor(UserEvent.class);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(UserEventType type, User user) {
+        outboxEventRepository.save(toOutboxEvent(type, user.getId(), user, Instant.now()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Integer userId) {
+        outboxEventRepository.save(toOutboxEvent(UserEventType.DELETED, userId, null, Instant.now()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(UserEventType type, List<User> users) {
+        Instant now = Instant.now();
+        List<OutboxEvent> events = new ArrayList<>(users.size());
+        for (User user : users) {
+            events.add(toOutboxEvent(type, user.getId(), user, now));
+        }
+        outboxEventRepository.saveAll(events);
+    }
+
+    // Same rows as recordAll, written with COPY on the transaction's connection for imports that
+    // create thousands of users at once; the events never enter the persistence context.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void copyAll(UserEventType type, List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        long[] ids = PgBulk.nextIds(jdbcTemplate, "user_outbox_id_seq", ID_ALLOCATION_SIZE, users.size());
+        PgBulk.copyIn(jdbcTemplate, COPY_OUTBOX, writer -> {
+            for (int i = 0; i < users.size(); i++) {
+                OutboxEvent event = toOutboxEvent(type, users.get(i).getId(), users.get(i), now);
+                writer.write(Long.toString(ids[i]));
+                writer.write(',');
+                writer.write(event.getAggregateId().toString());
+                writer.write(',');
+                writer.write(event.getEventType());
+                writer.write(',');
+                Csv.writeField(writer, event.getPayload());
+                writer.write(',');
+                writer.write(event.getCreatedAt().toString());
+                writer.write('\n');
+            }
+        });
+    }
+
+    public OutboxEvent toOutboxEvent(UserEventType type, Integer userId, User user, Instant now) {
+        UserEvent event = user == null
+                ? new UserEvent(type, userId, null, null, null, now)
+                : new UserEvent(type, userId, user.getName(), user.getEmail(), user.getAge(), now);
+        try {
+            return new OutboxEvent(userId, type.name(), eventWriter.writeValueAsString(event), now);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize user event", e);
+        }
+    }
+}
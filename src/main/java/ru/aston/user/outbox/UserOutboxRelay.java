@@ -0,0 +1,125 @@
+package ru.aston.user.outbox;
+
+import ru.aston.user.entity.OutboxEvent;
+import ru.aston.user.repository.OutboxEventRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.outbox.relay.enabled", havingValue = "true")
+public class UserOutboxRelay {
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> outboxKafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String topic;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration retention;
+
+    @Autowired
+    public UserOutboxRelay(OutboxEventRepository outboxEventRepository,
+                           KafkaTemplate<String, String> outboxKafkaTemplate,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${app.kafka.topic.user-events}") String topic,
+                           @Value("${app.outbox.relay.batch-size:500}") int batchSize,
+                           @Value("${app.outbox.relay.send-timeout:PT30S}") Duration sendTimeout,
+                           @Value("${app.outbox.relay.retention:P7D}") Duration retention) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxKafkaTemplate = outboxKafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.topic = topic;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.relay.poll-interval:PT0.5S}")
+    public void drain() {
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay failed, unsent events will be retried: {}", e.getMessage());
+        }
+    }
+
+    // Sent rows are only kept for redelivery by hand; they are deleted in batches of batchSize.
+    // The first run waits an interval as well, so it stays off startup.
+    @Scheduled(fixedDelayString = "${app.outbox.relay.purge-interval:PT1H}",
+            initialDelayString = "${app.outbox.relay.purge-interval:PT1H}")
+    public void purge() {
+        try {
+            int deleted;
+            do {
+                deleted = purgeBatch();
+            } while (deleted == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Outbox purge failed, sent events will be deleted on the next run: {}", e.getMessage());
+        }
+    }
+
+    public int purgeBatch() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteSentBefore(Instant.now().minus(retention), batchSize));
+
+        return deleted == null ? 0 : deleted;
+    }
+
+    // Rows stay locked until every send in the batch is acknowledged, so a failed batch
+    // rolls back unmarked and is picked up again (at-least-once, ordered per user key).
+    public int relayBatch() {
+        Integer relayed = transactionTemplate.execute(status -> {
+            if (!outboxEventRepository.tryLockRelay()) {
+                return 0;
+            }
+            List<OutboxEvent> events = outboxEventRepository.lockNextBatch(batchSize);
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            List<CompletableFuture<?>> sends = new ArrayList<>(events.size());
+            List<Long> ids = new ArrayList<>(events.size());
+            for (OutboxEvent event : events) {
+                sends.add(outboxKafkaTemplate.send(topic, String.valueOf(event.getAggregateId()), event.getPayload()));
+                ids.add(event.getId());
+            }
+            awaitAll(sends);
+
+            outboxEventRepository.markSent(ids, Instant.now());
+            return events.size();
+        });
+
+        return relayed == null ? 0 : relayed;
+    }
+
+    private void awaitAll(List<CompletableFuture<?>> sends) {
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while relaying outbox events", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Could not relay outbox events", e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ru.aston.user.repository;
+
+import ru.aston.user.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Relays on other instances skip the batch instead of taking the next one, which could hold later
+    // events of the same users and get them to Kafka first
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('user_outbox_relay'))", nativeQuery = true)
+    boolean tryLockRelay();
+
+    @Query(value = """
+            SELECT * FROM user_outbox
+            WHERE sent_at IS NULL
+            ORDER BY sequence_number
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.sentAt = :sentAt WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") Instant sentAt);
+
+    @Modifying
+    @Query(value = """
+            DELETE FROM user_outbox
+            WHERE id IN (SELECT id FROM user_outbox WHERE sent_at < :sentBefore LIMIT :limit)
+            """, nativeQuery = true)
+    int deleteSentBefore(@Param("sentBefore") Instant sentBefore, @Param("limit") int limit);
+
+    long countBySentAtIsNull();
+}
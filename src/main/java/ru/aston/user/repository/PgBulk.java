@@ -0,0 +1,65 @@
+package ru.aston.user.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+
+
+// Bulk writes that bypass Hibernate. Both run on the connection of the current transaction.
+public final class PgBulk {
+    private static final int COPY_BUFFER_SIZE = 65536;
+
+    private PgBulk() {
+    }
+
+    // Draws ids from a sequence in the blocks Hibernate's pooled optimizer uses, so both can share it:
+    // a value v reserves v - allocationSize + 1 up to v, except the very first value 1, which reserves only itself.
+    public static long[] nextIds(JdbcTemplate jdbcTemplate, String sequence, int allocationSize, int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            int blocks = (count - filled + allocationSize - 1) / allocationSize;
+            List<Long> values = jdbcTemplate.queryForList(
+                    "SELECT nextval('" + sequence + "') FROM generate_series(1, ?)", Long.class, blocks);
+            for (long hi : values) {
+                for (long id = Math.max(1, hi - allocationSize + 1); id <= hi && filled < count; id++) {
+                    ids[filled++] = id;
+                }
+            }
+        }
+        return ids;
+    }
+
+    // copySql must read FROM STDIN; rows are written as text in whatever FORMAT it names.
+    public static long copyIn(JdbcTemplate jdbcTemplate, String copySql, Rows rows) {
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            PGCopyOutputStream copy = new PGCopyOutputStream(
+                    connection.unwrap(PGConnection.class), copySql, COPY_BUFFER_SIZE);
+            try {
+                Writer writer = new OutputStreamWriter(copy, StandardCharsets.UTF_8);
+                rows.write(writer);
+                writer.flush();
+                return copy.endCopy();
+            } catch (IOException e) {
+                throw new SQLException("COPY failed: " + copySql, e);
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        });
+        return copied == null ? 0 : copied;
+    }
+
+    @FunctionalInterface
+    public interface Rows {
+        void write(Writer writer) throws IOException;
+    }
+}
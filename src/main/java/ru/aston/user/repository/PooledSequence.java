@@ -0,0 +1,47 @@
+package ru.aston.user.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+
+// Reactive counterpart of PgBulk.nextIds for one id at a time: ids are handed out from the block
+// of the last nextval, so only one insert in allocationSize pays for the extra round trip.
+// Concurrent callers that both find the block used up each draw a block; the loser's remainder
+// is skipped, leaving a gap just like a Hibernate instance that shuts down mid-block.
+public final class PooledSequence {
+    private final DatabaseClient databaseClient;
+    private final String nextvalSql;
+    private final int allocationSize;
+    private long next = 1;
+    private long hi;
+
+    public PooledSequence(DatabaseClient databaseClient, String sequence, int allocationSize) {
+        this.databaseClient = databaseClient;
+        this.nextvalSql = "SELECT nextval('" + sequence + "')";
+        this.allocationSize = allocationSize;
+    }
+
+    public Mono<Long> nextId() {
+        return Mono.defer(() -> {
+            Long id = take();
+            if (id != null) {
+                return Mono.just(id);
+            }
+            return databaseClient.sql(nextvalSql)
+                    .map(row -> row.get(0, Long.class))
+                    .one()
+                    .map(this::startBlock);
+        });
+    }
+
+    private synchronized Long take() {
+        return next <= hi ? next++ : null;
+    }
+
+    private synchronized long startBlock(long blockHi) {
+        long first = Math.max(1, blockHi - allocationSize + 1);
+        next = first + 1;
+        hi = blockHi;
+        return first;
+    }
+}
@@ -0,0 +1,149 @@
+package ru.aston.user.repository;
+
+import ru.aston.user.entity.User;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+
+// The queries of UserRepository that the reactive API needs, written against the same table; the
+// statements match what Hibernate sends, so both stacks can serve the same database side by side.
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserRepository {
+    // Must match allocationSize of users_id_seq on User
+    private static final int ID_ALLOCATION_SIZE = 50;
+    // Same batch as UserRepository.STREAM_FETCH_SIZE; demand beyond it is only fetched once requested
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String COLUMNS = "id, name, email, age, created_at, updated_at, version";
+    private static final String INSERT = """
+            INSERT INTO users (id, name, email, age, created_at, updated_at, version)
+            VALUES (:id, :name, :email, :age, :createdAt, :updatedAt, 0)
+            RETURNING\s""" + COLUMNS;
+    // Same statement as UserRepository.updatePartially
+    private static final String UPDATE_PARTIALLY = """
+            UPDATE users
+            SET name = COALESCE(:name, name),
+                email = COALESCE(:email, email),
+                age = COALESCE(:age, age),
+                updated_at = :updatedAt,
+                version = version + 1
+            WHERE id = :id AND version = COALESCE(:expectedVersion, version)
+            RETURNING\s""" + COLUMNS;
+
+    private final DatabaseClient databaseClient;
+    private final PooledSequence ids;
+
+    @Autowired
+    public ReactiveUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+        this.ids = new PooledSequence(databaseClient, "users_id_seq", ID_ALLOCATION_SIZE);
+    }
+
+    public Flux<User> findPage(int afterId, int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE id > :afterId ORDER BY id LIMIT :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toUser)
+                .all();
+    }
+
+    public Flux<User> streamAll() {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users ORDER BY id")
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(ReactiveUserRepository::toUser)
+                .all();
+    }
+
+    public Mono<UsersVersion> findUsersVersion() {
+        return databaseClient.sql("SELECT (SELECT count(*) FROM users) AS count, sum(changes)::bigint AS changes, "
+                        + "max(last_modified) AS last_modified FROM users_version")
+                .map(row -> new UsersVersion(row.get("count", Long.class), row.get("changes", Long.class),
+                        row.get("last_modified", Instant.class)))
+                .one();
+    }
+
+    public Mono<User> findById(int id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toUser)
+                .one();
+    }
+
+    public Mono<Long> findVersionById(int id) {
+        return databaseClient.sql("SELECT version FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    public Mono<Boolean> existsById(int id) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM users WHERE id = :id)")
+                .bind("id", id)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    public Mono<Boolean> existsByEmail(String email) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM users WHERE email = :email)")
+                .bind("email", email)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    public Mono<User> insert(User user) {
+        Instant now = Instant.now();
+        return ids.nextId().flatMap(id -> {
+            DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(INSERT)
+                    .bind("id", id.intValue())
+                    .bind("name", user.getName())
+                    .bind("email", user.getEmail())
+                    .bind("createdAt", LocalDateTime.now())
+                    .bind("updatedAt", now);
+            return bind(spec, "age", user.getAge(), Integer.class)
+                    .map(ReactiveUserRepository::toUser)
+                    .one();
+        });
+    }
+
+    public Mono<User> updatePartially(int id, String name, String email, Integer age, Long expectedVersion,
+                                      Instant updatedAt) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(UPDATE_PARTIALLY)
+                .bind("id", id)
+                .bind("updatedAt", updatedAt);
+        spec = bind(spec, "name", name, String.class);
+        spec = bind(spec, "email", email, String.class);
+        spec = bind(spec, "age", age, Integer.class);
+        spec = bind(spec, "expectedVersion", expectedVersion, Long.class);
+        return spec.map(ReactiveUserRepository::toUser).one();
+    }
+
+    public Mono<Long> deleteById(int id) {
+        return databaseClient.sql("DELETE FROM users WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static <T> DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                              T value, Class<T> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static User toUser(Readable row) {
+        User user = new User(row.get("name", String.class), row.get("email", String.class),
+                row.get("age", Integer.class));
+        user.setId(row.get("id", Integer.class));
+        user.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        user.setUpdatedAt(row.get("updated_at", Instant.class));
+        user.setVersion(row.get("version", Long.class));
+        return user;
+    }
+}
@@ -1,10 +1,95 @@
 package ru.aston.user.repository;
 
 import ru.aston.user.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
+    String STREAM_FETCH_SIZE = "500";
+
+    List<User> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    Optional<UserView> findViewByEmail(String email);
+
+    List<UserView> findViewByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    List<UserView> findViewByNameStartingWithAndIdGreaterThanOrderByIdAsc(String namePrefix, Integer id,
+                                                                          Limit limit);
+
+    List<UserView> findViewByAgeBetweenAndIdGreaterThanOrderByIdAsc(int minAge, int maxAge, Integer id,
+                                                                    Limit limit);
+
+    List<UserView> findViewByNameStartingWithAndAgeBetweenAndIdGreaterThanOrderByIdAsc(String namePrefix,
+                                                                                       int minAge, int maxAge,
+                                                                                       Integer id, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT u FROM User u ORDER BY u.id")
+    Stream<User> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT u.email FROM User u")
+    Stream<String> streamAllEmails();
+
+    boolean existsByEmail(String email);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT u.version FROM User u WHERE u.id = :id")
+    Optional<Long> findVersionById(@Param("id") int id);
+
+    // One statement, so the count and the version come from the same snapshot
+    @Query(value = """
+            SELECT (SELECT count(*) FROM users) AS count, sum(changes)::bigint AS changes,
+                   max(last_modified) AS lastModified
+            FROM users_version
+            """, nativeQuery = true)
+    UsersVersion findUsersVersion();
+
+    @Query(value = """
+            UPDATE users
+            SET name = COALESCE(:name, name),
+                email = COALESCE(:email, email),
+                age = COALESCE(:age, age),
+                updated_at = :updatedAt,
+                version = version + 1
+            WHERE id = :id AND version = COALESCE(:expectedVersion, version)
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<User> updatePartially(@Param("id") int id,
+                                   @Param("name") String name,
+                                   @Param("email") String email,
+                                   @Param("age") Integer age,
+                                   @Param("expectedVersion") Long expectedVersion,
+                                   @Param("updatedAt") Instant updatedAt);
+
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id = :id")
+    int deleteUserById(@Param("id") int id);
 }
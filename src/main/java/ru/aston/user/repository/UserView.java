@@ -0,0 +1,12 @@
+package ru.aston.user.repository;
+
+
+public interface UserView {
+    Integer getId();
+
+    String getName();
+
+    String getEmail();
+
+    Integer getAge();
+}
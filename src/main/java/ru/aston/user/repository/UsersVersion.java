@@ -0,0 +1,8 @@
+package ru.aston.user.repository;
+
+import java.time.Instant;
+
+
+// changes and lastModified come from the users_version stripes, one of which every committed write to users bumps
+public record UsersVersion(long count, long changes, Instant lastModified) {
+}
@@ -0,0 +1,144 @@
+package ru.aston.user.service.batch;
+
+import ru.aston.user.dto.UserBatchItemResult;
+import ru.aston.user.dto.UserBatchResult;
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.entity.User;
+import ru.aston.user.mapper.UserMapper;
+import ru.aston.user.outbox.UserEventType;
+import ru.aston.user.outbox.UserOutbox;
+import ru.aston.user.repository.UserRepository;
+import ru.aston.user.service.cache.UserEmailFilter;
+import ru.aston.user.util.UserErrorResponse;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+
+@Service
+public class UserBatchService {
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final UserOutbox userOutbox;
+    private final UserEmailFilter userEmailFilter;
+    private final int batchSize;
+
+    @Autowired
+    public UserBatchService(UserRepository userRepository, UserMapper userMapper, Validator validator,
+                            TransactionTemplate transactionTemplate, UserOutbox userOutbox,
+                            UserEmailFilter userEmailFilter, @Value("${app.users.batch-size:100}") int batchSize) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.userOutbox = userOutbox;
+        this.userEmailFilter = userEmailFilter;
+        this.batchSize = batchSize;
+    }
+
+    public UserBatchResult createUsers(Iterator<UserDTO> userDTOs) {
+        UserBatchResult result = new UserBatchResult();
+        List<PendingUser> chunk = new ArrayList<>(batchSize);
+        int index = 0;
+
+        while (userDTOs.hasNext()) {
+            UserDTO userDTO = userDTOs.next();
+            int itemIndex = index++;
+
+            Set<ConstraintViolation<UserDTO>> violations = validator.validate(userDTO, UserDTO.OnCreate.class, Default.class);
+            if (!violations.isEmpty()) {
+                result.add(UserBatchItemResult.invalid(itemIndex, UserErrorResponse.getErrorMessage(violations)));
+                continue;
+            }
+
+            chunk.add(new PendingUser(itemIndex, userMapper.toEntity(userDTO)));
+            if (chunk.size() == batchSize) {
+                insertChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            insertChunk(chunk, result);
+        }
+
+        result.getItems().sort(Comparator.comparingInt(UserBatchItemResult::getIndex));
+        return result;
+    }
+
+    // Each chunk commits on its own, so earlier chunks are already visible to the
+    // existing-email probe of the later ones and a failure never rolls back the whole import.
+    private void insertChunk(List<PendingUser> chunk, UserBatchResult result) {
+        Set<String> emails = new HashSet<>(chunk.size() * 2);
+        for (PendingUser pending : chunk) {
+            String email = pending.user().getEmail();
+            if (userEmailFilter.mightExist(email)) {
+                emails.add(email);
+            }
+        }
+        Set<String> existingEmails = emails.isEmpty() ? Set.of() : userRepository.findExistingEmails(emails);
+
+        Set<String> acceptedEmails = new HashSet<>(chunk.size() * 2);
+        List<PendingUser> toInsert = new ArrayList<>(chunk.size());
+        for (PendingUser pending : chunk) {
+            String email = pending.user().getEmail();
+            if (existingEmails.contains(email) || !acceptedEmails.add(email)) {
+                result.add(UserBatchItemResult.duplicate(pending.index(), email));
+            } else {
+                pending.user().setId(null);
+                toInsert.add(pending);
+            }
+        }
+
+        if (toInsert.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<User> savedUsers = userRepository.saveAll(toInsert.stream().map(PendingUser::user).toList());
+                userOutbox.recordAll(UserEventType.CREATED, savedUsers);
+                userRepository.flush();
+            });
+            for (PendingUser pending : toInsert) {
+                userEmailFilter.add(pending.user().getEmail());
+                result.add(UserBatchItemResult.created(pending.index(), pending.user().getId()));
+            }
+        } catch (DataIntegrityViolationException e) {
+            insertOneByOne(toInsert, result);
+        }
+    }
+
+    // Only reached when a concurrent writer claimed an email between the probe and the insert.
+    private void insertOneByOne(List<PendingUser> pendingUsers, UserBatchResult result) {
+        for (PendingUser pending : pendingUsers) {
+            User user = pending.user();
+            user.setId(null);
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        userOutbox.record(UserEventType.CREATED, userRepository.saveAndFlush(user)));
+                userEmailFilter.add(user.getEmail());
+                result.add(UserBatchItemResult.created(pending.index(), user.getId()));
+            } catch (DataIntegrityViolationException e) {
+                result.add(UserBatchItemResult.duplicate(pending.index(), user.getEmail()));
+            }
+        }
+    }
+
+    private record PendingUser(int index, User user) {
+    }
+}
@@ -0,0 +1,336 @@
+package ru.aston.user.service.batch;
+
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.dto.UserImportResult;
+import ru.aston.user.entity.User;
+import ru.aston.user.mapper.UserMapper;
+import ru.aston.user.outbox.UserEventType;
+import ru.aston.user.outbox.UserOutbox;
+import ru.aston.user.repository.PgBulk;
+import ru.aston.user.service.cache.UserEmailFilter;
+import ru.aston.user.util.Csv;
+import ru.aston.user.util.UserErrorResponse;
+import ru.aston.user.util.UserNotCreatedException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+
+// Streams an upload in chunks: lines are parsed and validated in parallel, the valid ones are
+// COPYed into a session-local staging table and merged into users with one INSERT ... ON CONFLICT.
+// Like UserBatchService, every chunk commits on its own, so an upload that breaks off part-way
+// is reported with what was imported up to that point instead of as a plain error.
+@Service
+public class UserImportService {
+    // Must match allocationSize of users_id_seq on User
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE IF NOT EXISTS users_import (
+                line  integer      NOT NULL,
+                id    integer      NOT NULL,
+                name  varchar(255) NOT NULL,
+                email varchar(255) NOT NULL,
+                age   integer
+            ) ON COMMIT DELETE ROWS
+            """;
+    private static final String COPY_STAGING = "COPY users_import (line, id, name, email, age) FROM STDIN (FORMAT csv)";
+    // The first line of an email in the chunk wins; later ones and emails already in users are duplicates
+    private static final String MERGE_STAGING = """
+            INSERT INTO users (id, name, email, age, created_at, updated_at, version)
+            SELECT DISTINCT ON (email) id, name, email, age, now(), now(), 0
+            FROM users_import
+            ORDER BY email, line
+            ON CONFLICT (email) DO NOTHING
+            RETURNING id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserMapper userMapper;
+    private final Validator validator;
+    private final ObjectReader ndjsonReader;
+    private final UserOutbox userOutbox;
+    private final UserEmailFilter userEmailFilter;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final ExecutorService validators;
+    private final int threads;
+
+    @Autowired
+    public UserImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             UserMapper userMapper, Validator validator, ObjectMapper objectMapper,
+                             UserOutbox userOutbox, UserEmailFilter userEmailFilter,
+                             @Value("${app.users.import.chunk-size:10000}") int chunkSize,
+                             @Value("${app.users.import.max-errors:1000}") int maxErrors,
+                             @Value("${app.users.import.threads:4}") int threads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userMapper = userMapper;
+        this.validator = validator;
+        this.ndjsonReader = objectMapper.readerFor(UserDTO.class);
+        this.userOutbox = userOutbox;
+        this.userEmailFilter = userEmailFilter;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        // Own pool rather than the common ForkJoinPool, so imports neither starve nor get starved by other parallel work
+        this.validators = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("user-import-", 0).factory());
+        this.threads = threads;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        validators.shutdownNow();
+        validators.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public UserImportResult importCsv(InputStream body) throws IOException {
+        Csv.RecordReader records = new Csv.RecordReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        CsvColumns columns = CsvColumns.of(records.next());
+
+        return importLines(() -> {
+            List<String> record = records.next();
+            while (record != null && record.size() == 1 && record.getFirst().isBlank()) {
+                record = records.next();
+            }
+            return record == null ? null : new Line<>(records.getLine(), record);
+        }, columns::toDTO);
+    }
+
+    public UserImportResult importNdjson(InputStream body) throws IOException {
+        LineNumberReader reader = new LineNumberReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        return importLines(() -> {
+            String text = reader.readLine();
+            while (text != null && text.isBlank()) {
+                text = reader.readLine();
+            }
+            return text == null ? null : new Line<>(reader.getLineNumber(), text);
+        }, this::parseJson);
+    }
+
+    private <T> UserImportResult importLines(LineSource<T> source, Function<T, UserDTO> parser) throws IOException {
+        long start = System.nanoTime();
+        UserImportResult result = new UserImportResult(maxErrors);
+        List<Line<T>> chunk = new ArrayList<>(chunkSize);
+
+        for (Line<T> line = next(source, result, 0); line != null; line = next(source, result, line.number())) {
+            chunk.add(line);
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, parser, result);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, parser, result);
+        }
+
+        result.finish(System.nanoTime() - start);
+        return result;
+    }
+
+    // The lines read before a broken one still get imported, and the result tells where the upload stopped
+    private static <T> Line<T> next(LineSource<T> source, UserImportResult result, int lastLine) {
+        try {
+            return source.next();
+        } catch (IOException e) {
+            result.abort(lastLine, e.getMessage());
+            return null;
+        }
+    }
+
+    private <T> void importChunk(List<Line<T>> chunk, Function<T, UserDTO> parser, UserImportResult result) {
+        // Parsing and bean validation are CPU-bound and independent per line; only the COPY is serial
+        ImportRow[] rows = new ImportRow[chunk.size()];
+        int sliceSize = (rows.length + threads - 1) / threads;
+        List<Callable<Void>> slices = new ArrayList<>(threads);
+        for (int from = 0; from < rows.length; from += sliceSize) {
+            int start = from;
+            int end = Math.min(rows.length, from + sliceSize);
+            slices.add(() -> {
+                for (int i = start; i < end; i++) {
+                    rows[i] = validate(chunk.get(i), parser);
+                }
+                return null;
+            });
+        }
+        invokeAll(slices);
+
+        List<ImportRow> valid = new ArrayList<>(rows.length);
+        for (ImportRow row : rows) {
+            if (row.error() != null) {
+                result.addInvalid(row.line(), row.error());
+            } else {
+                valid.add(row);
+            }
+        }
+
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        List<ImportRow> duplicates = new ArrayList<>();
+        List<User> created = transactionTemplate.execute(status -> {
+            long[] ids = PgBulk.nextIds(jdbcTemplate, "users_id_seq", ID_ALLOCATION_SIZE, valid.size());
+            jdbcTemplate.execute(CREATE_STAGING);
+            PgBulk.copyIn(jdbcTemplate, COPY_STAGING, writer -> {
+                for (int i = 0; i < valid.size(); i++) {
+                    ImportRow row = valid.get(i);
+                    writer.write(Integer.toString(row.line()));
+                    writer.write(',');
+                    writer.write(Long.toString(ids[i]));
+                    writer.write(',');
+                    Csv.writeField(writer, row.user().getName());
+                    writer.write(',');
+                    Csv.writeField(writer, row.user().getEmail());
+                    writer.write(',');
+                    writer.write(row.user().getAge() == null ? "" : row.user().getAge().toString());
+                    writer.write('\n');
+                }
+            });
+            Set<Integer> createdIds = new HashSet<>(jdbcTemplate.queryForList(MERGE_STAGING, Integer.class));
+
+            List<User> users = new ArrayList<>(createdIds.size());
+            for (int i = 0; i < valid.size(); i++) {
+                ImportRow row = valid.get(i);
+                if (createdIds.contains((int) ids[i])) {
+                    row.user().setId((int) ids[i]);
+                    users.add(row.user());
+                } else {
+                    duplicates.add(row);
+                }
+            }
+            userOutbox.copyAll(UserEventType.CREATED, users);
+            return users;
+        });
+
+        for (User user : created) {
+            userEmailFilter.add(user.getEmail());
+        }
+        result.addCreated(created.size());
+        for (ImportRow row : duplicates) {
+            result.addDuplicate(row.line(), row.user().getEmail());
+        }
+    }
+
+    private void invokeAll(List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : validators.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating an import", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T> ImportRow validate(Line<T> line, Function<T, UserDTO> parser) {
+        UserDTO userDTO;
+        try {
+            userDTO = parser.apply(line.value());
+        } catch (UserNotCreatedException e) {
+            return new ImportRow(line.number(), null, e.getMessage());
+        }
+
+        Set<ConstraintViolation<UserDTO>> violations = validator.validate(userDTO, UserDTO.OnCreate.class, Default.class);
+        if (!violations.isEmpty()) {
+            return new ImportRow(line.number(), null, UserErrorResponse.getErrorMessage(violations));
+        }
+        return new ImportRow(line.number(), userMapper.toEntity(userDTO), null);
+    }
+
+    private UserDTO parseJson(String text) {
+        try {
+            return ndjsonReader.readValue(text);
+        } catch (JsonProcessingException e) {
+            throw new UserNotCreatedException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface LineSource<T> {
+        Line<T> next() throws IOException;
+    }
+
+    private record Line<T>(int number, T value) {
+    }
+
+    private record ImportRow(int line, User user, String error) {
+    }
+
+    // Columns are matched by header name, so an export (id,name,email,age) can be imported as is; id is ignored
+    private record CsvColumns(int count, int name, int email, int age) {
+
+        static CsvColumns of(List<String> header) {
+            if (header == null) {
+                throw new UserNotCreatedException("CSV upload is empty");
+            }
+            int name = -1;
+            int email = -1;
+            int age = -1;
+            for (int i = 0; i < header.size(); i++) {
+                switch (header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT)) {
+                    case "name" -> name = i;
+                    case "email" -> email = i;
+                    case "age" -> age = i;
+                    default -> {
+                    }
+                }
+            }
+            if (name < 0 || email < 0) {
+                throw new UserNotCreatedException("CSV header must contain name and email columns");
+            }
+            return new CsvColumns(header.size(), name, email, age);
+        }
+
+        UserDTO toDTO(List<String> record) {
+            if (record.size() != count) {
+                throw new UserNotCreatedException("Expected " + count + " fields but found " + record.size());
+            }
+            UserDTO userDTO = new UserDTO();
+            userDTO.setName(record.get(name));
+            userDTO.setEmail(record.get(email));
+            if (age >= 0 && !record.get(age).isBlank()) {
+                try {
+                    userDTO.setAge(Integer.parseInt(record.get(age).trim()));
+                } catch (NumberFormatException e) {
+                    throw new UserNotCreatedException("Age should be a number");
+                }
+            }
+            return userDTO;
+        }
+    }
+}
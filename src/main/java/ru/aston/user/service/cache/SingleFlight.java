@@ -0,0 +1,92 @@
+package ru.aston.user.service.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+
+// Concurrent calls for the same key share one execution and its outcome, a null or an exception
+// included. Joining is a putIfAbsent on one of several independent maps, so unrelated keys never
+// contend and nobody holds a lock while the leader runs; waiters only block on the flight's future.
+// A flight is only joined by callers whose generation it covers: one that started before something
+// the caller has already seen (an eviction, say) could return a result older than that.
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, Flight<V>>[] stripes;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder joins = new LongAdder();
+
+    public SingleFlight() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    @SuppressWarnings("unchecked")
+    public SingleFlight(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    public V execute(K key, long generation, Supplier<V> loader) {
+        ConcurrentHashMap<K, Flight<V>> stripe = stripe(key);
+        Flight<V> flight = new Flight<>(generation);
+        Flight<V> current = stripe.putIfAbsent(key, flight);
+        while (current != null) {
+            if (current.generation() >= generation) {
+                joins.increment();
+                return current.await();
+            }
+            // The flight in the map predates this caller; take over the key for the ones after it
+            current = stripe.replace(key, current, flight) ? null : stripe.putIfAbsent(key, flight);
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            flight.result().complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            stripe.remove(key, flight);
+        }
+    }
+
+    public long executions() {
+        return executions.sum();
+    }
+
+    public long joins() {
+        return joins.sum();
+    }
+
+    private ConcurrentHashMap<K, Flight<V>> stripe(K key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private record Flight<V>(long generation, CompletableFuture<V> result) {
+
+        Flight(long generation) {
+            this(generation, new CompletableFuture<>());
+        }
+
+        V await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.aston.user.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+@Component
+public class UserCache {
+    public static final String CACHE_NAME = "users";
+
+    // Power of two; ids sharing a stripe only cost each other a skipped put, never a stale one
+    private static final int EVICTION_STRIPES = 1024;
+
+    private final Cache<Integer, UserSnapshot> cache;
+    private final Executor delayedEvictor;
+    private final AtomicLongArray evictions = new AtomicLongArray(EVICTION_STRIPES);
+
+    @Autowired
+    public UserCache(@Value("${app.cache.users.maximum-size:10000}") long maximumSize,
+                     @Value("${app.cache.users.ttl:PT5M}") Duration ttl,
+                     @Value("${app.cache.users.delayed-eviction:PT0S}") Duration delayedEviction,
+                     MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.delayedEvictor = delayedEviction.isZero()
+                ? null
+                : CompletableFuture.delayedExecutor(delayedEviction.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public UserCache(long maximumSize, Duration ttl, MeterRegistry meterRegistry) {
+        this(maximumSize, ttl, Duration.ZERO, meterRegistry);
+    }
+
+    public UserSnapshot getIfPresent(Integer id) {
+        return cache.getIfPresent(id);
+    }
+
+    // Loads, whether single-flight, batched or non-blocking, take a stamp of the id before reading
+    // the row, and the snapshot is only stored if the id was not evicted in between.
+    // The stamp is per stripe of ids, so writes to other users do not keep a hot one out of the cache.
+    public long evictionStamp(Integer id) {
+        return evictions.get(stripe(id));
+    }
+
+    public void putUnlessEvicted(Integer id, UserSnapshot snapshot, long stamp) {
+        cache.asMap().compute(id, (key, current) -> evictions.get(stripe(id)) == stamp ? snapshot : current);
+    }
+
+    public void evict(Integer id) {
+        invalidate(id);
+    }
+
+    // With read replicas a reader can reload the old row from a lagging replica right after
+    // the commit, so the entry is evicted a second time once the lag window has passed.
+    public void evictAfterCommit(Integer id) {
+        afterCommit(() -> {
+            invalidate(id);
+            if (delayedEvictor != null) {
+                delayedEvictor.execute(() -> invalidate(id));
+            }
+        });
+    }
+
+    // The counter moves first, so a putUnlessEvicted racing this either sees the new stamp or
+    // is undone by the invalidate, which waits for its compute to finish.
+    private void invalidate(Integer id) {
+        evictions.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+    }
+
+    private static int stripe(Integer id) {
+        return id.hashCode() & (EVICTION_STRIPES - 1);
+    }
+
+    // Writes only become visible to other readers once the transaction commits, so touching
+    // the cache any earlier could either resurrect a rolled-back row or race a stale reload.
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
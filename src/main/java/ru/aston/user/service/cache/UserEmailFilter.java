@@ -0,0 +1,78 @@
+package ru.aston.user.service.cache;
+
+import ru.aston.user.repository.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+
+// Emails are never removed: a deleted or renamed user only leaves a false positive behind,
+// which costs one indexed lookup. Emails written by other instances are not seen here, so
+// the unique constraint stays the final guard.
+@Slf4j
+@Component
+public class UserEmailFilter {
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BloomFilter filter;
+    private volatile boolean warmedUp;
+
+    @Autowired
+    public UserEmailFilter(UserRepository userRepository, TransactionTemplate transactionTemplate,
+                           @Value("${app.users.email-filter.expected-insertions:1000000}") long expectedInsertions,
+                           @Value("${app.users.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(),
+                transactionTemplate);
+        this.transactionTemplate.setReadOnly(true);
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    // The scan takes as long as the table is big, so it must not hold up readiness: until it is done
+    // mightExist answers "maybe" and creates pay for one indexed lookup each
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmUp() {
+        Thread.ofVirtual().name("user-email-filter-warm-up").start(() -> {
+            try {
+                warmUp();
+            } catch (RuntimeException e) {
+                log.error("Email filter warm-up failed, every email will be checked against the table", e);
+            }
+        });
+    }
+
+    public void warmUp() {
+        long start = System.nanoTime();
+        AtomicLong count = new AtomicLong();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> emails = userRepository.streamAllEmails()) {
+                emails.forEach(email -> {
+                    filter.put(email);
+                    count.incrementAndGet();
+                });
+            }
+        });
+        warmedUp = true;
+        log.info("Email filter warmed up with {} emails in {}", count.get(),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    // Until the warm-up scan has finished every email has to be checked against the table.
+    public boolean mightExist(String email) {
+        return !warmedUp || filter.mightContain(email);
+    }
+
+    public void add(String email) {
+        if (email != null) {
+            filter.put(email);
+        }
+    }
+}
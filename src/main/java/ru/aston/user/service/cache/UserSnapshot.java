@@ -0,0 +1,25 @@
+package ru.aston.user.service.cache;
+
+import ru.aston.user.entity.User;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+
+public record UserSnapshot(Integer id, String name, String email, Integer age,
+                           LocalDateTime createdAt, Instant updatedAt, Long version) {
+
+    public static UserSnapshot of(User user) {
+        return new UserSnapshot(user.getId(), user.getName(), user.getEmail(), user.getAge(),
+                user.getCreatedAt(), user.getUpdatedAt(), user.getVersion());
+    }
+
+    public User toUser() {
+        User user = new User(name, email, age);
+        user.setId(id);
+        user.setCreatedAt(createdAt);
+        user.setUpdatedAt(updatedAt);
+        user.setVersion(version);
+        return user;
+    }
+}
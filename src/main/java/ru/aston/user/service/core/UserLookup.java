@@ -0,0 +1,10 @@
+package ru.aston.user.service.core;
+
+import ru.aston.user.entity.User;
+
+import java.util.List;
+
+
+// Found users in the order they were asked for, each id once, and the ids that do not exist.
+public record UserLookup(List<User> users, List<Integer> missing) {
+}
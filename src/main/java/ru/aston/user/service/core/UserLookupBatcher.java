@@ -0,0 +1,108 @@
+package ru.aston.user.service.core;
+
+import ru.aston.user.entity.User;
+import ru.aston.user.repository.UserRepository;
+import ru.aston.user.service.cache.UserSnapshot;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+
+// Single-id reads that miss the cache within app.users.lookup.batch-window of the first one are
+// answered by one findAllById (a single IN query) instead of a query each. A batch that reaches
+// max-batch-size is read right away by the caller that filled it. Off by default, since every
+// miss then waits up to one window before its query even starts.
+@Component
+public class UserLookupBatcher {
+    private final UserRepository userRepository;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Executor delayedFlush;
+    private Batch current;
+
+    @Autowired
+    public UserLookupBatcher(UserRepository userRepository,
+                             @Value("${app.users.lookup.batch-window:PT0S}") Duration window,
+                             @Value("${app.users.lookup.max-batch-size:100}") int maxBatchSize) {
+        this.userRepository = userRepository;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.delayedFlush = CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS,
+                command -> Thread.ofVirtual().name("user-lookup-batch").start(command));
+    }
+
+    public boolean isEnabled() {
+        return windowNanos > 0;
+    }
+
+    // Returns null for an id that does not exist; a failed query fails every lookup of its batch
+    public UserSnapshot load(Integer id) {
+        CompletableFuture<UserSnapshot> result;
+        Batch full = null;
+        synchronized (this) {
+            if (current == null) {
+                Batch batch = new Batch();
+                current = batch;
+                delayedFlush.execute(() -> flush(batch));
+            }
+            result = current.lookups.computeIfAbsent(id, key -> new CompletableFuture<>());
+            if (current.lookups.size() >= maxBatchSize) {
+                full = current;
+                current = null;
+            }
+        }
+
+        if (full != null) {
+            flush(full);
+        }
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void flush(Batch batch) {
+        synchronized (this) {
+            if (batch.flushed) {
+                return;
+            }
+            batch.flushed = true;
+            if (current == batch) {
+                current = null;
+            }
+        }
+
+        try {
+            Map<Integer, UserSnapshot> found = new HashMap<>();
+            for (User user : userRepository.findAllById(batch.lookups.keySet())) {
+                found.put(user.getId(), UserSnapshot.of(user));
+            }
+            batch.lookups.forEach((id, lookup) -> lookup.complete(found.get(id)));
+        } catch (RuntimeException | Error e) {
+            batch.lookups.values().forEach(lookup -> lookup.completeExceptionally(e));
+        }
+    }
+
+    // Filled under the batcher's lock and only read once flushed has been set under it
+    private static class Batch {
+        private final Map<Integer, CompletableFuture<UserSnapshot>> lookups = new LinkedHashMap<>();
+        private boolean flushed;
+    }
+}
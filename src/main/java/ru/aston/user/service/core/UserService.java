@@ -1,51 +1,209 @@
 package ru.aston.user.service.core;
 
+import ru.aston.user.dto.UserSearchCriteria;
 import ru.aston.user.entity.User;
+import ru.aston.user.outbox.UserEventType;
+import ru.aston.user.outbox.UserOutbox;
 import ru.aston.user.repository.UserRepository;
+import ru.aston.user.repository.UserView;
+import ru.aston.user.repository.UsersVersion;
+import ru.aston.user.service.cache.UserCache;
+import ru.aston.user.service.cache.UserEmailFilter;
+import ru.aston.user.service.cache.SingleFlight;
+import ru.aston.user.service.cache.UserSnapshot;
+import ru.aston.user.util.UserConflictException;
 import ru.aston.user.util.UserNotUpdatedException;
 import ru.aston.user.util.UserNotCreatedException;
 import ru.aston.user.util.UserNotDeletedException;
 import ru.aston.user.util.UserNotFoundException;
 
+import jakarta.persistence.EntityManager;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DataAccessException;
-import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 
 @Service
 @Transactional(readOnly = true)
 public class UserService {
     private final UserRepository userRepository;
-    private final UserService self;
+    private final EntityManager entityManager;
+    private final UserCache userCache;
+    private final UserOutbox userOutbox;
+    private final UserEmailFilter userEmailFilter;
+    private final UserLookupBatcher userLookupBatcher;
+    private final SingleFlight<Integer, UserSnapshot> userLookups = new SingleFlight<>();
 
     @Autowired
-    public UserService(UserRepository userRepository, @Lazy UserService self) {
+    public UserService(UserRepository userRepository, EntityManager entityManager,
+                       UserCache userCache, UserOutbox userOutbox, UserEmailFilter userEmailFilter,
+                       UserLookupBatcher userLookupBatcher) {
         this.userRepository = userRepository;
-        this.self = self;
+        this.entityManager = entityManager;
+        this.userCache = userCache;
+        this.userOutbox = userOutbox;
+        this.userEmailFilter = userEmailFilter;
+        this.userLookupBatcher = userLookupBatcher;
     }
 
     @Transactional(readOnly = true)
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public List<User> getUsersPage(int afterId, int limit) {
+        return userRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit));
     }
 
+    // Each filter maps onto its own index: the unique email index, users_name_pattern_idx for the
+    // prefix and users_age_idx for the range; only the columns of UserView are selected.
     @Transactional(readOnly = true)
+    public List<UserView> searchUsers(UserSearchCriteria criteria, int afterId, int limit) {
+        if (criteria.email() != null) {
+            return userRepository.findViewByEmail(criteria.email())
+                    .filter(user -> user.getId() > afterId && criteria.matches(user))
+                    .map(List::of)
+                    .orElse(List.of());
+        }
+
+        Limit pageLimit = Limit.of(limit);
+        if (criteria.hasName() && criteria.hasAgeRange()) {
+            return userRepository.findViewByNameStartingWithAndAgeBetweenAndIdGreaterThanOrderByIdAsc(
+                    criteria.namePrefix(), criteria.ageFrom(), criteria.ageTo(), afterId, pageLimit);
+        }
+        if (criteria.hasName()) {
+            return userRepository.findViewByNameStartingWithAndIdGreaterThanOrderByIdAsc(
+                    criteria.namePrefix(), afterId, pageLimit);
+        }
+        if (criteria.hasAgeRange()) {
+            return userRepository.findViewByAgeBetweenAndIdGreaterThanOrderByIdAsc(
+                    criteria.ageFrom(), criteria.ageTo(), afterId, pageLimit);
+        }
+
+        return userRepository.findViewByIdGreaterThanOrderByIdAsc(afterId, pageLimit);
+    }
+
+    // Entities are detached as soon as they are handed over, so the persistence context
+    // never grows past a single row while the cursor is being drained.
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Consumer<User> consumer) {
+        try (Stream<User> users = userRepository.streamAll()) {
+            users.forEach(user -> {
+                consumer.accept(user);
+                entityManager.detach(user);
+            });
+        }
+    }
+
+    // A hit needs no connection, so no transaction is opened here; a miss reads through findById's own
+    // read-only one. Concurrent misses for an id share a single query and its outcome, not found and
+    // errors included, unless it started before an eviction this caller could already have observed.
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public User getUserById(Integer id) {
-        return userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException("User with ID " + id + " not found"));
+        UserSnapshot snapshot = userCache.getIfPresent(id);
+        if (snapshot == null) {
+            long stamp = userCache.evictionStamp(id);
+            snapshot = userLookups.execute(id, stamp, () -> {
+                UserSnapshot loaded = userLookupBatcher.isEnabled()
+                        ? userLookupBatcher.load(id)
+                        : userRepository.findById(id).map(UserSnapshot::of).orElse(null);
+                if (loaded != null) {
+                    userCache.putUnlessEvicted(id, loaded, stamp);
+                }
+                return loaded;
+            });
+        }
+
+        if (snapshot == null) {
+            throw notFound(id);
+        }
+
+        return snapshot.toUser();
     }
 
+    // Cached users come from the cache and the rest from a single IN query, which is also why there
+    // is no transaction around it: findAllById opens its own read-only one only if something missed.
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public UserLookup getUsersByIds(Collection<Integer> ids) {
+        Map<Integer, UserSnapshot> snapshots = new LinkedHashMap<>();
+        List<Integer> misses = new ArrayList<>();
+        for (Integer id : ids) {
+            if (!snapshots.containsKey(id)) {
+                UserSnapshot snapshot = userCache.getIfPresent(id);
+                snapshots.put(id, snapshot);
+                if (snapshot == null) {
+                    misses.add(id);
+                }
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Map<Integer, Long> stamps = new HashMap<>(misses.size() * 2);
+            for (Integer id : misses) {
+                stamps.put(id, userCache.evictionStamp(id));
+            }
+            for (User user : userRepository.findAllById(misses)) {
+                UserSnapshot snapshot = UserSnapshot.of(user);
+                snapshots.put(user.getId(), snapshot);
+                userCache.putUnlessEvicted(user.getId(), snapshot, stamps.get(user.getId()));
+            }
+        }
+
+        List<User> users = new ArrayList<>(snapshots.size());
+        List<Integer> missing = new ArrayList<>();
+        snapshots.forEach((id, snapshot) -> {
+            if (snapshot == null) {
+                missing.add(id);
+            } else {
+                users.add(snapshot.toUser());
+            }
+        });
+        return new UserLookup(users, missing);
+    }
+
+    // Conditional GETs only need the version, so a cached snapshot answers without a query
+    // and otherwise a single column is read instead of the whole row.
+    @Transactional(readOnly = true)
+    public long getUserVersion(Integer id) {
+        UserSnapshot snapshot = userCache.getIfPresent(id);
+        if (snapshot != null) {
+            return snapshot.version();
+        }
+
+        return userRepository.findVersionById(id).orElseThrow(() -> notFound(id));
+    }
+
+    @Transactional(readOnly = true)
+    public UsersVersion getUsersVersion() {
+        return userRepository.findUsersVersion();
+    }
+
+    // Emails the filter has never seen go straight to the INSERT; likely duplicates are settled
+    // by an indexed lookup instead of a failing INSERT and its constraint violation.
     @Transactional
     public User createUser(User user) {
+        if (userEmailFilter.mightExist(user.getEmail()) && userRepository.existsByEmail(user.getEmail())) {
+            throw duplicateEmail(user.getEmail());
+        }
+
         try {
-            return userRepository.save(user);
+            User createdUser = userRepository.saveAndFlush(user);
+            userEmailFilter.add(createdUser.getEmail());
+            userOutbox.record(UserEventType.CREATED, createdUser);
+            userCache.evictAfterCommit(createdUser.getId());
+            return createdUser;
         } catch (DataIntegrityViolationException | ConstraintViolationException e) {
-            throw new UserNotCreatedException("User with this email " + user.getEmail() + " already exists");
+            throw duplicateEmail(user.getEmail());
         } catch (DataAccessException dataAccessException) {
             throw dataAccessException;
         } catch (Exception e) {
@@ -53,15 +211,21 @@ public class UserService {
         }
     }
 
+    // A non-null version on updatedUser makes the update conditional: the single UPDATE only
+    // matches that version, so concurrent writers are detected without holding a row lock.
     @Transactional
     public User updateUser(int id, User updatedUser) {
         try {
-            User existingUser = self.getUserById(id);
-            existingUser.setName(updatedUser.getName());
-            existingUser.setEmail(updatedUser.getEmail());
-            existingUser.setAge(updatedUser.getAge());
-            return userRepository.save(existingUser);
-        } catch (DataAccessException | UserNotFoundException exception) {
+            Long expectedVersion = updatedUser.getVersion();
+            User savedUser = userRepository
+                    .updatePartially(id, updatedUser.getName(), updatedUser.getEmail(), updatedUser.getAge(),
+                            expectedVersion, Instant.now())
+                    .orElseThrow(() -> updateRejected(id, expectedVersion));
+            userEmailFilter.add(updatedUser.getEmail());
+            userOutbox.record(UserEventType.UPDATED, savedUser);
+            userCache.evictAfterCommit(id);
+            return savedUser;
+        } catch (DataAccessException | UserNotFoundException | UserConflictException exception) {
             throw exception;
         } catch (Exception e) {
             throw new UserNotUpdatedException(e.getMessage());
@@ -71,12 +235,35 @@ public class UserService {
     @Transactional
     public void deleteUser(int id) {
         try {
-            User user = self.getUserById(id);
-            userRepository.delete(user);
+            if (userRepository.deleteUserById(id) == 0) {
+                throw notFound(id);
+            }
+            userOutbox.recordDeleted(id);
+            userCache.evictAfterCommit(id);
         } catch (DataAccessException | UserNotFoundException exception) {
             throw exception;
         } catch (Exception e) {
             throw new UserNotDeletedException(e.getMessage());
         }
     }
+
+    // The client's version came from somewhere, most likely the cache, so drop the entry to
+    // let its retry start from the current row.
+    private RuntimeException updateRejected(int id, Long expectedVersion) {
+        if (expectedVersion == null || !userRepository.existsById(id)) {
+            return notFound(id);
+        }
+
+        userCache.evict(id);
+        return new UserConflictException("User with ID " + id + " was modified, version " + expectedVersion
+                + " is no longer current");
+    }
+
+    private static UserNotCreatedException duplicateEmail(String email) {
+        return new UserNotCreatedException("User with this email " + email + " already exists");
+    }
+
+    private static UserNotFoundException notFound(Integer id) {
+        return new UserNotFoundException("User with ID " + id + " not found");
+    }
 }
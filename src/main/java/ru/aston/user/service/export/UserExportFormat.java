@@ -0,0 +1,23 @@
+package ru.aston.user.service.export;
+
+import java.util.Locale;
+
+
+public enum UserExportFormat {
+    CSV("csv"),
+    NDJSON("ndjson");
+
+    private final String extension;
+
+    UserExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String fileName(String jobId) {
+        return "users-" + jobId + "." + extension + ".gz";
+    }
+
+    public static UserExportFormat of(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
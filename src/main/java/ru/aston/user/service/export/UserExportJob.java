@@ -0,0 +1,78 @@
+package ru.aston.user.service.export;
+
+import lombok.Getter;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+// Written by the export thread only; readers see the volatile fields and the row counter
+// and can poll without any locking.
+public class UserExportJob {
+    public enum Status { PENDING, RUNNING, COMPLETED, FAILED }
+
+    @Getter
+    private final String id;
+
+    @Getter
+    private final UserExportFormat format;
+
+    @Getter
+    private final Path file;
+
+    @Getter
+    private final Instant createdAt;
+
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    @Getter
+    private volatile Status status = Status.PENDING;
+
+    @Getter
+    private volatile long totalRows;
+
+    @Getter
+    private volatile long sizeBytes;
+
+    @Getter
+    private volatile Instant finishedAt;
+
+    @Getter
+    private volatile String error;
+
+    public UserExportJob(String id, UserExportFormat format, Path file, Instant createdAt) {
+        this.id = id;
+        this.format = format;
+        this.file = file;
+        this.createdAt = createdAt;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public boolean isCompleted() {
+        return status == Status.COMPLETED;
+    }
+
+    void start(long totalRows) {
+        this.totalRows = totalRows;
+        this.status = Status.RUNNING;
+    }
+
+    void rowWritten() {
+        rowsWritten.incrementAndGet();
+    }
+
+    void complete(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+        this.finishedAt = Instant.now();
+        this.status = Status.COMPLETED;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = Status.FAILED;
+    }
+}
@@ -0,0 +1,204 @@
+package ru.aston.user.service.export;
+
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.mapper.UserMapper;
+import ru.aston.user.service.core.UserService;
+import ru.aston.user.util.Csv;
+import ru.aston.user.util.UserExportBusyException;
+import ru.aston.user.util.UserNotFoundException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+
+// Exports run on their own small pool and drain UserService.streamAllUsers, so neither the
+// request threads nor the export threads ever hold more than one row and one buffer.
+// Rows go through a large buffer into the deflater, whose output reaches the FileChannel in
+// chunks of the same size; the file only appears under its final name once it is complete.
+// At most max-pending jobs wait for a thread: each one is a full table scan and a file on disk,
+// so further requests are turned away instead of queueing without bound.
+@Slf4j
+@Service
+public class UserExportService {
+    private static final String CSV_HEADER = "id,name,email,age\n";
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private final UserService userService;
+    private final UserMapper userMapper;
+    private final ObjectWriter ndjsonWriter;
+    private final Path directory;
+    private final int bufferSize;
+    private final ExecutorService executor;
+    private final Cache<String, UserExportJob> jobs;
+
+    @Autowired
+    public UserExportService(UserService userService, UserMapper userMapper, ObjectMapper objectMapper,
+                             @Value("${app.users.export.directory:${java.io.tmpdir}/user-exports}") String directory,
+                             @Value("${app.users.export.threads:2}") int threads,
+                             @Value("${app.users.export.max-pending:4}") int maxPending,
+                             @Value("${app.users.export.buffer-size:262144}") int bufferSize,
+                             @Value("${app.users.export.retention:PT1H}") Duration retention) throws IOException {
+        this(userService, userMapper, objectMapper, Path.of(directory), bufferSize, retention,
+                new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxPending),
+                        Thread.ofPlatform().name("user-export-", 0).factory()));
+    }
+
+    UserExportService(UserService userService, UserMapper userMapper, ObjectMapper objectMapper,
+                      Path directory, int bufferSize, Duration retention, ExecutorService executor) throws IOException {
+        this.userService = userService;
+        this.userMapper = userMapper;
+        this.ndjsonWriter = objectMapper.writerFor(UserDTO.class)
+                .withRootValueSeparator("")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.directory = Files.createDirectories(directory);
+        this.bufferSize = bufferSize;
+        this.executor = executor;
+        // Retention counts from completion: a finished job is put again, which restarts its expiry
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(retention)
+                .scheduler(Scheduler.systemScheduler())
+                .<String, UserExportJob>removalListener((id, job, cause) -> {
+                    if (job != null && cause == RemovalCause.EXPIRED) {
+                        deleteQuietly(job.getFile());
+                    }
+                })
+                .build();
+        deleteLeftovers();
+    }
+
+    public UserExportJob start(UserExportFormat format) {
+        String id = UUID.randomUUID().toString();
+        UserExportJob job = new UserExportJob(id, format, directory.resolve(format.fileName(id)), Instant.now());
+        jobs.put(id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(id);
+            throw new UserExportBusyException("Too many exports in progress, try again later");
+        }
+        return job;
+    }
+
+    public UserExportJob getJob(String id) {
+        UserExportJob job = jobs.getIfPresent(id);
+        if (job == null) {
+            throw new UserNotFoundException("Export job " + id + " not found");
+        }
+        return job;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    void run(UserExportJob job) {
+        Path partial = job.getFile().resolveSibling(job.getFile().getFileName() + PARTIAL_SUFFIX);
+        try {
+            job.start(userService.getUsersVersion().count());
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 OutputStream out = new BufferedOutputStream(
+                         new GZIPOutputStream(Channels.newOutputStream(channel), bufferSize), bufferSize)) {
+                switch (job.getFormat()) {
+                    case CSV -> writeCsv(job, out);
+                    case NDJSON -> writeNdjson(job, out);
+                }
+            }
+            Files.move(partial, job.getFile(), StandardCopyOption.ATOMIC_MOVE);
+            job.complete(Files.size(job.getFile()));
+            jobs.put(job.getId(), job);
+        } catch (Exception e) {
+            deleteQuietly(partial);
+            job.fail(e.getMessage());
+            log.warn("User export {} failed", job.getId(), e);
+        }
+    }
+
+    private void writeCsv(UserExportJob job, OutputStream out) throws IOException {
+        // OutputStreamWriter only encodes; it hands its bytes straight to the large buffer below
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write(CSV_HEADER);
+        userService.streamAllUsers(user -> {
+            try {
+                writer.write(String.valueOf(user.getId()));
+                writer.write(',');
+                Csv.writeField(writer, user.getName());
+                writer.write(',');
+                Csv.writeField(writer, user.getEmail());
+                writer.write(',');
+                writer.write(user.getAge() == null ? "" : user.getAge().toString());
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            job.rowWritten();
+        });
+        writer.flush();
+    }
+
+    private void writeNdjson(UserExportJob job, OutputStream out) throws IOException {
+        JsonGenerator generator = ndjsonWriter.createGenerator(out);
+        userService.streamAllUsers(user -> {
+            try {
+                ndjsonWriter.writeValue(generator, userMapper.toDTO(user));
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            job.rowWritten();
+        });
+        generator.flush();
+    }
+
+    // Jobs live in memory only, so files from an earlier run can never be downloaded again
+    private void deleteLeftovers() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "users-*")) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete export file {}", file, e);
+        }
+    }
+}
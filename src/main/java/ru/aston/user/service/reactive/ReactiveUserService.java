@@ -0,0 +1,167 @@
+package ru.aston.user.service.reactive;
+
+import ru.aston.user.config.ReactiveConfig;
+import ru.aston.user.entity.User;
+import ru.aston.user.outbox.ReactiveUserOutbox;
+import ru.aston.user.outbox.UserEventType;
+import ru.aston.user.repository.ReactiveUserRepository;
+import ru.aston.user.repository.UsersVersion;
+import ru.aston.user.service.cache.UserCache;
+import ru.aston.user.service.cache.UserEmailFilter;
+import ru.aston.user.service.cache.UserSnapshot;
+import ru.aston.user.util.UserConflictException;
+import ru.aston.user.util.UserException;
+import ru.aston.user.util.UserNotCreatedException;
+import ru.aston.user.util.UserNotDeletedException;
+import ru.aston.user.util.UserNotFoundException;
+import ru.aston.user.util.UserNotUpdatedException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.Instant;
+import java.util.function.Function;
+
+
+// Non-blocking counterpart of UserService with the same checks, exceptions and cache and outbox
+// bookkeeping. There are no thread-bound transactions here, so the cache and the email filter are
+// updated once the transactional publisher has completed, which is after the commit.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserService {
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveUserOutbox userOutbox;
+    private final UserCache userCache;
+    private final UserEmailFilter userEmailFilter;
+    private final TransactionalOperator transactionalOperator;
+    private final TransactionalOperator readOnlyOperator;
+
+    @Autowired
+    public ReactiveUserService(ReactiveUserRepository userRepository, ReactiveUserOutbox userOutbox,
+                               UserCache userCache, UserEmailFilter userEmailFilter,
+                               TransactionalOperator transactionalOperator,
+                               @Qualifier(ReactiveConfig.READ_ONLY_OPERATOR) TransactionalOperator readOnlyOperator) {
+        this.userRepository = userRepository;
+        this.userOutbox = userOutbox;
+        this.userCache = userCache;
+        this.userEmailFilter = userEmailFilter;
+        this.transactionalOperator = transactionalOperator;
+        this.readOnlyOperator = readOnlyOperator;
+    }
+
+    public Flux<User> getUsersPage(int afterId, int limit) {
+        return userRepository.findPage(afterId, limit);
+    }
+
+    // Rows are fetched in batches as the subscriber asks for them, so a slow client holds
+    // one batch and a connection, never the whole table.
+    public Flux<User> streamAllUsers() {
+        return readOnlyOperator.transactional(userRepository.streamAll());
+    }
+
+    // UserCache.get would block a thread on the loader, so a miss is read outside the cache and
+    // only stored if no write has evicted anything since the read started.
+    public Mono<User> getUserById(int id) {
+        return Mono.defer(() -> {
+            UserSnapshot snapshot = userCache.getIfPresent(id);
+            if (snapshot != null) {
+                return Mono.just(snapshot.toUser());
+            }
+            long stamp = userCache.evictionStamp(id);
+            return userRepository.findById(id)
+                    .doOnNext(user -> userCache.putUnlessEvicted(id, UserSnapshot.of(user), stamp));
+        }).switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    public Mono<Long> getUserVersion(int id) {
+        return Mono.defer(() -> {
+            UserSnapshot snapshot = userCache.getIfPresent(id);
+            if (snapshot != null) {
+                return Mono.just(snapshot.version());
+            }
+            return userRepository.findVersionById(id);
+        }).switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    public Mono<UsersVersion> getUsersVersion() {
+        return userRepository.findUsersVersion();
+    }
+
+    public Mono<User> createUser(User user) {
+        String email = user.getEmail();
+        return Mono.defer(() -> userEmailFilter.mightExist(email) ? userRepository.existsByEmail(email) : Mono.just(false))
+                .flatMap(exists -> exists ? Mono.error(duplicateEmail(email)) : userRepository.insert(user))
+                .flatMap(createdUser -> userOutbox.record(UserEventType.CREATED, createdUser).thenReturn(createdUser))
+                .as(transactionalOperator::transactional)
+                .doOnNext(createdUser -> {
+                    userEmailFilter.add(createdUser.getEmail());
+                    userCache.evictAfterCommit(createdUser.getId());
+                })
+                .onErrorMap(e -> e instanceof DataIntegrityViolationException
+                        ? duplicateEmail(email)
+                        : failure(e, UserNotCreatedException::new));
+    }
+
+    // Same conditional UPDATE as UserService.updateUser: a version on updatedUser has to match
+    public Mono<User> updateUser(int id, User updatedUser) {
+        Long expectedVersion = updatedUser.getVersion();
+        return userRepository
+                .updatePartially(id, updatedUser.getName(), updatedUser.getEmail(), updatedUser.getAge(),
+                        expectedVersion, Instant.now())
+                .switchIfEmpty(Mono.defer(() -> updateRejected(id, expectedVersion)))
+                .flatMap(savedUser -> userOutbox.record(UserEventType.UPDATED, savedUser).thenReturn(savedUser))
+                .as(transactionalOperator::transactional)
+                .doOnNext(savedUser -> {
+                    userEmailFilter.add(updatedUser.getEmail());
+                    userCache.evictAfterCommit(id);
+                })
+                .onErrorMap(e -> failure(e, UserNotUpdatedException::new));
+    }
+
+    public Mono<Void> deleteUser(int id) {
+        return userRepository.deleteById(id)
+                .flatMap(deleted -> deleted == 0 ? Mono.<Void>error(notFound(id)) : userOutbox.recordDeleted(id))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(ignored -> userCache.evictAfterCommit(id))
+                .onErrorMap(e -> failure(e, UserNotDeletedException::new));
+    }
+
+    private Mono<User> updateRejected(int id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.error(notFound(id));
+        }
+
+        return userRepository.existsById(id).flatMap(exists -> {
+            if (!exists) {
+                return Mono.error(notFound(id));
+            }
+            userCache.evict(id);
+            return Mono.error(new UserConflictException("User with ID " + id + " was modified, version "
+                    + expectedVersion + " is no longer current"));
+        });
+    }
+
+    // Mirrors the catch blocks of UserService; transaction failures are raised by the proxy there,
+    // outside of them, so they pass through as well
+    private static Throwable failure(Throwable e, Function<String, UserException> wrapper) {
+        if (e instanceof DataAccessException || e instanceof TransactionException || e instanceof UserException) {
+            return e;
+        }
+        return wrapper.apply(e.getMessage());
+    }
+
+    private static UserNotCreatedException duplicateEmail(String email) {
+        return new UserNotCreatedException("User with this email " + email + " already exists");
+    }
+
+    private static UserNotFoundException notFound(Integer id) {
+        return new UserNotFoundException("User with ID " + id + " not found");
+    }
+}
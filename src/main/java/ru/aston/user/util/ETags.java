@@ -0,0 +1,52 @@
+package ru.aston.user.util;
+
+import java.util.StringJoiner;
+
+
+public final class ETags {
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETags() {
+    }
+
+    public static String of(Object... parts) {
+        StringJoiner eTag = new StringJoiner("-", "\"", "\"");
+        for (Object part : parts) {
+            eTag.add(String.valueOf(part));
+        }
+        return eTag.toString();
+    }
+
+    public static String weakOf(Object... parts) {
+        return WEAK_PREFIX + of(parts);
+    }
+
+    // If-None-Match uses the weak comparison, so a W/ prefix on either side is ignored.
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = stripWeak(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || stripWeak(trimmed).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns the opaque value of a single strong ETag, or null for weak, listed or unquoted tags.
+    public static String strongValue(String eTag) {
+        String trimmed = eTag.trim();
+        if (trimmed.length() < 2 || !trimmed.startsWith("\"") || !trimmed.endsWith("\"")
+                || trimmed.indexOf('"', 1) != trimmed.length() - 1) {
+            return null;
+        }
+        return trimmed.substring(1, trimmed.length() - 1);
+    }
+
+    private static String stripWeak(String eTag) {
+        return eTag.startsWith(WEAK_PREFIX) ? eTag.substring(WEAK_PREFIX.length()) : eTag;
+    }
+}
@@ -0,0 +1,32 @@
+package ru.aston.user.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+// Lets one caller through per interval and counts the rest, so a flood of identical errors
+// turns into one log line per interval that reports how many were skipped.
+final class LogSampler {
+    static final long SUPPRESSED = -1;
+
+    private final long intervalNanos;
+    private final AtomicLong nextAllowedAt;
+    private final LongAdder suppressed = new LongAdder();
+
+    LogSampler(Duration interval) {
+        this.intervalNanos = interval.toNanos();
+        this.nextAllowedAt = new AtomicLong(System.nanoTime());
+    }
+
+    // Returns the number of calls suppressed since the last allowed one, or SUPPRESSED.
+    long tryAcquire() {
+        long now = System.nanoTime();
+        long allowedAt = nextAllowedAt.get();
+        if (now - allowedAt < 0 || !nextAllowedAt.compareAndSet(allowedAt, now + intervalNanos)) {
+            suppressed.increment();
+            return SUPPRESSED;
+        }
+        return suppressed.sumThenReset();
+    }
+}
@@ -0,0 +1,8 @@
+package ru.aston.user.util;
+
+
+public class UserConflictException extends UserException {
+    public UserConflictException(String message) {
+        super(message);
+    }
+}
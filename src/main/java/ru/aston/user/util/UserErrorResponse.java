@@ -2,6 +2,9 @@ package ru.aston.user.util;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.BindingResult;
+import jakarta.validation.ConstraintViolation;
+import java.util.Comparator;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.time.LocalDateTime;
 import lombok.Getter;
@@ -27,4 +30,11 @@ public class UserErrorResponse {
                 .map(e -> e.getField() + " - " + e.getDefaultMessage())
                 .collect(Collectors.joining("; "));
     }
+
+    public static String getErrorMessage(Set<? extends ConstraintViolation<?>> violations) {
+        return violations.stream()
+                .sorted(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                .map(v -> v.getPropertyPath() + " - " + v.getMessage())
+                .collect(Collectors.joining("; "));
+    }
 }
@@ -0,0 +1,10 @@
+package ru.aston.user.util;
+
+
+// Domain errors end up as a 4xx body and are never inspected for their origin, so they skip
+// the stack trace capture that would otherwise dominate the cost of a rejected request.
+public abstract class UserException extends RuntimeException {
+    protected UserException(String message) {
+        super(message, null, false, false);
+    }
+}
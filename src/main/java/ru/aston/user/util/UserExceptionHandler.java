@@ -1,45 +1,138 @@
 package ru.aston.user.util;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.exception.JDBCConnectionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.BindException;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.transaction.CannotCreateTransactionException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 
 @Slf4j
 @RestControllerAdvice
 public class UserExceptionHandler {
+    public static final String ERRORS_NAME = "user.errors";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final MeterRegistry meterRegistry;
+    private final Duration logInterval;
+    private final Map<ErrorKey, Counter> errorCounters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, LogSampler> logSamplers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UserExceptionHandler(MeterRegistry meterRegistry,
+                                @Value("${app.errors.log-interval:PT1S}") Duration logInterval) {
+        this.meterRegistry = meterRegistry;
+        this.logInterval = logInterval;
+    }
 
     @ExceptionHandler(UserNotFoundException.class)
     private ResponseEntity<UserErrorResponse> handleNotFound(UserNotFoundException e) {
-        log.warn("User not found: {}", e.getMessage());
+        logSampled(e, "User not found");
 
-        return buildResponse(e.getMessage(), HttpStatus.NOT_FOUND);
+        return buildResponse(e, e.getMessage(), HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(UserNotCreatedException.class)
     private ResponseEntity<UserErrorResponse> handleNotCreated(UserNotCreatedException e) {
-        log.warn("User not created: {}", e.getMessage());
+        logSampled(e, "User not created");
 
-        return buildResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
+        return buildResponse(e, e.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(UserNotUpdatedException.class)
     private ResponseEntity<UserErrorResponse> handleNotUpdated(UserNotUpdatedException e) {
-        log.warn("User not updated: {}", e.getMessage());
+        logSampled(e, "User not updated");
 
-        return buildResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
+        return buildResponse(e, e.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(UserNotDeletedException.class)
     private ResponseEntity<UserErrorResponse> handleNotDeleted(UserNotDeletedException e) {
-        log.warn("User not deleted: {}", e.getMessage());
+        logSampled(e, "User not deleted");
+
+        return buildResponse(e, e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(UserExportException.class)
+    private ResponseEntity<UserErrorResponse> handleExportRejected(UserExportException e) {
+        logSampled(e, "User export rejected");
+
+        return buildResponse(e, e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(UserExportBusyException.class)
+    private ResponseEntity<UserErrorResponse> handleExportBusy(UserExportBusyException e) {
+        logSampled(e, "User export rejected");
+
+        return buildResponse(e, e.getMessage(), HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @ExceptionHandler(UserLookupException.class)
+    private ResponseEntity<UserErrorResponse> handleLookupRejected(UserLookupException e) {
+        logSampled(e, "User lookup rejected");
+
+        return buildResponse(e, e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler({UserConflictException.class, OptimisticLockingFailureException.class})
+    private ResponseEntity<UserErrorResponse> handleConflict(RuntimeException e) {
+        logSampled(e, "User update conflict");
+
+        return buildResponse(e, e.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    // Query parameters that do not convert (after=abc, ids=1,x) or bind (minAge=old on /search)
+    @ExceptionHandler(TypeMismatchException.class)
+    private ResponseEntity<UserErrorResponse> handleTypeMismatch(TypeMismatchException e) {
+        logSampled(e, "Malformed request parameter");
+
+        return buildResponse(e, typeMismatchMessage(e.getPropertyName(), e.getValue()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(BindException.class)
+    private ResponseEntity<UserErrorResponse> handleBindingFailure(BindException e) {
+        logSampled(e, "Malformed request parameter");
 
-        return buildResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
+        String message = e.getFieldErrors().stream()
+                .map(error -> error.isBindingFailure()
+                        ? typeMismatchMessage(error.getField(), error.getRejectedValue())
+                        : error.getField() + " - " + error.getDefaultMessage())
+                .collect(Collectors.joining("; "));
+        return buildResponse(e, message, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    private ResponseEntity<UserErrorResponse> handleUnreadableBody(HttpMessageNotReadableException e) {
+        logSampled(e, "Malformed request body");
+
+        return buildResponse(e, "Malformed request body", HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(HttpMediaTypeNotAcceptableException.class)
+    private ResponseEntity<Void> handleNotAcceptable(HttpMediaTypeNotAcceptableException e) {
+        logSampled(e, "Response format not acceptable");
+        errorCounter(e.getClass(), HttpStatus.NOT_ACCEPTABLE).increment();
+
+        // An error body would have to be written in one of the formats the client has just refused
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
     }
 
     @ExceptionHandler({
@@ -48,22 +141,69 @@ public class UserExceptionHandler {
             JDBCConnectionException.class
     })
     public ResponseEntity<UserErrorResponse> handleDatabaseError(Exception e) {
-        log.error("Database error occurred", e);
+        long suppressed = logSampler(e.getClass()).tryAcquire();
+        if (suppressed != LogSampler.SUPPRESSED) {
+            log.error("Database error occurred ({} similar suppressed)", suppressed, e);
+        }
 
-        return buildResponse("A server error occurred. Please try again later.",
+        return buildResponse(e, "A server error occurred. Please try again later.",
                 HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    // No database permit came free in time (see DbConcurrencyLimiter): the database is busy, not broken
+    @ExceptionHandler(TransientDataAccessResourceException.class)
+    public ResponseEntity<UserErrorResponse> handleDatabaseBusy(TransientDataAccessResourceException e) {
+        logSampled(e, "Database busy");
+        errorCounter(e.getClass(), HttpStatus.SERVICE_UNAVAILABLE).increment();
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(new UserErrorResponse("The service is busy. Please try again later.",
+                        HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
     @ExceptionHandler(Exception.class)
     private ResponseEntity<UserErrorResponse> handleException(Exception e) {
         log.error("Unexpected error", e);
 
-        return buildResponse("Internal server error", HttpStatus.INTERNAL_SERVER_ERROR);
+        return buildResponse(e, "Internal server error", HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
-    private ResponseEntity<UserErrorResponse> buildResponse(String message, HttpStatus status) {
+    // Client errors are counted in user.errors on every occurrence; the log only needs a sample.
+    private void logSampled(Exception e, String description) {
+        if (!log.isWarnEnabled()) {
+            return;
+        }
+        long suppressed = logSampler(e.getClass()).tryAcquire();
+        if (suppressed != LogSampler.SUPPRESSED) {
+            log.warn("{}: {} ({} similar suppressed)", description, e.getMessage(), suppressed);
+        }
+    }
+
+    private static String typeMismatchMessage(String name, Object value) {
+        return name + " - Invalid value '" + value + "'";
+    }
+
+    private LogSampler logSampler(Class<?> exceptionType) {
+        return logSamplers.computeIfAbsent(exceptionType, type -> new LogSampler(logInterval));
+    }
+
+    private ResponseEntity<UserErrorResponse> buildResponse(Exception e, String message, HttpStatus status) {
+        errorCounter(e.getClass(), status).increment();
         UserErrorResponse response = new UserErrorResponse(message, status);
 
         return new ResponseEntity<>(response, status);
     }
+
+    // Keyed by status too: the same exception type can end up as different responses
+    Counter errorCounter(Class<?> exceptionType, HttpStatus status) {
+        return errorCounters.computeIfAbsent(new ErrorKey(exceptionType, status), key -> Counter.builder(ERRORS_NAME)
+                .description("Exceptions mapped to error responses")
+                .tag("exception", key.exceptionType().getSimpleName())
+                .tag("status", String.valueOf(key.status().value()))
+                .register(meterRegistry));
+    }
+
+    private record ErrorKey(Class<?> exceptionType, HttpStatus status) {
+    }
 }
@@ -0,0 +1,8 @@
+package ru.aston.user.util;
+
+
+public class UserExportBusyException extends UserException {
+    public UserExportBusyException(String message) {
+        super(message);
+    }
+}
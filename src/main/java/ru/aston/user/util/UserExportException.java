@@ -0,0 +1,8 @@
+package ru.aston.user.util;
+
+
+public class UserExportException extends UserException {
+    public UserExportException(String message) {
+        super(message);
+    }
+}
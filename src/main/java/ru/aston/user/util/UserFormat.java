@@ -0,0 +1,60 @@
+package ru.aston.user.util;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import java.util.List;
+import java.util.Locale;
+
+
+// The representations of a user, in the order of their message converters. A strong ETag promises
+// byte-identical bodies, so the per-user one names the format the response is going to be written in.
+public enum UserFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    SMILE(new MediaType("application", "x-jackson-smile")),
+    CBOR(MediaType.APPLICATION_CBOR),
+    PROTOBUF(new MediaType("application", "x-protobuf"));
+
+    private final MediaType mediaType;
+
+    UserFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String token() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public String eTag(Long version) {
+        return ETags.of(version, token());
+    }
+
+    // Same choice as content negotiation: the highest quality wins, ties go to the earlier Accept entry
+    // and then to the earlier converter. An Accept header nothing matches ends in a 406 anyway.
+    public static UserFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+
+        UserFormat best = JSON;
+        double bestQuality = -1;
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() <= Math.max(bestQuality, 0)) {
+                continue;
+            }
+            for (UserFormat format : values()) {
+                if (mediaType.isCompatibleWith(format.mediaType)) {
+                    best = format;
+                    bestQuality = mediaType.getQualityValue();
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+}
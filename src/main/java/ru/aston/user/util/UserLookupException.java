@@ -0,0 +1,8 @@
+package ru.aston.user.util;
+
+
+public class UserLookupException extends UserException {
+    public UserLookupException(String message) {
+        super(message);
+    }
+}
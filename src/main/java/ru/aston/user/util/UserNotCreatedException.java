@@ -1,7 +1,7 @@
 package ru.aston.user.util;
 
 
-public class UserNotCreatedException extends RuntimeException {
+public class UserNotCreatedException extends UserException {
     public UserNotCreatedException(String message) {
         super(message);
     }
@@ -1,7 +1,7 @@
 package ru.aston.user.util;
 
 
-public class UserNotDeletedException extends RuntimeException {
+public class UserNotDeletedException extends UserException {
     public UserNotDeletedException(String message) {
         super(message);
     }
@@ -1,7 +1,7 @@
 package ru.aston.user.util;
 
 
-public class UserNotFoundException extends RuntimeException{
+public class UserNotFoundException extends UserException {
     public UserNotFoundException(String message) {
         super(message);
     }
@@ -1,7 +1,7 @@
 package ru.aston.user.util;
 
 
-public class UserNotUpdatedException extends RuntimeException {
+public class UserNotUpdatedException extends UserException {
     public UserNotUpdatedException(String message) {
         super(message);
     }
@@ -0,0 +1,140 @@
+package ru.aston.user.util;
+
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.dto.UserLookupResult;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+import java.util.List;
+
+
+// Hand-written codec for the messages in proto/users.proto. Lists are written element by element,
+// so a UserList never exists as a message or a byte array: only each User is sized before it is written.
+public final class UserProtobuf {
+    private static final int USER_ID = 1;
+    private static final int USER_NAME = 2;
+    private static final int USER_EMAIL = 3;
+    private static final int USER_AGE = 4;
+
+    private static final int LIST_USERS = 1;
+    private static final int LOOKUP_USERS = 1;
+    private static final int LOOKUP_MISSING = 2;
+
+    private static final int ERROR_MESSAGE = 1;
+    private static final int ERROR_TIMESTAMP = 2;
+    private static final int ERROR_STATUS = 3;
+
+    private UserProtobuf() {
+    }
+
+    public static void writeUser(CodedOutputStream out, UserDTO user) throws IOException {
+        if (user.getId() != null) {
+            out.writeInt32(USER_ID, user.getId());
+        }
+        if (user.getName() != null) {
+            out.writeString(USER_NAME, user.getName());
+        }
+        if (user.getEmail() != null) {
+            out.writeString(USER_EMAIL, user.getEmail());
+        }
+        if (user.getAge() != null) {
+            out.writeInt32(USER_AGE, user.getAge());
+        }
+    }
+
+    public static void writeUsers(CodedOutputStream out, Iterable<UserDTO> users) throws IOException {
+        for (UserDTO user : users) {
+            writeUserField(out, LIST_USERS, user);
+        }
+    }
+
+    public static void writeLookupResult(CodedOutputStream out, UserLookupResult result) throws IOException {
+        for (UserDTO user : result.getUsers()) {
+            writeUserField(out, LOOKUP_USERS, user);
+        }
+        List<Integer> missing = result.getMissing();
+        if (missing.isEmpty()) {
+            return;
+        }
+        // proto3 packs repeated scalars by default
+        int size = 0;
+        for (int id : missing) {
+            size += CodedOutputStream.computeInt32SizeNoTag(id);
+        }
+        out.writeTag(LOOKUP_MISSING, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(size);
+        for (int id : missing) {
+            out.writeInt32NoTag(id);
+        }
+    }
+
+    public static void writeError(CodedOutputStream out, UserErrorResponse error) throws IOException {
+        if (error.getMessage() != null) {
+            out.writeString(ERROR_MESSAGE, error.getMessage());
+        }
+        if (error.getTimestamp() != null) {
+            out.writeString(ERROR_TIMESTAMP, error.getTimestamp().toString());
+        }
+        if (error.getStatus() != null) {
+            out.writeString(ERROR_STATUS, error.getStatus().name());
+        }
+    }
+
+    // Reads a whole User message; unknown fields are skipped so newer clients can send more
+    public static UserDTO readUser(CodedInputStream in) throws IOException {
+        UserDTO user = new UserDTO();
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case USER_ID -> user.setId(readInt32(in, tag));
+                case USER_NAME -> user.setName(readString(in, tag));
+                case USER_EMAIL -> user.setEmail(readString(in, tag));
+                case USER_AGE -> user.setAge(readInt32(in, tag));
+                default -> in.skipField(tag);
+            }
+        }
+        return user;
+    }
+
+    private static void writeUserField(CodedOutputStream out, int field, UserDTO user) throws IOException {
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(userSize(user));
+        writeUser(out, user);
+    }
+
+    private static int userSize(UserDTO user) {
+        int size = 0;
+        if (user.getId() != null) {
+            size += CodedOutputStream.computeInt32Size(USER_ID, user.getId());
+        }
+        if (user.getName() != null) {
+            size += CodedOutputStream.computeStringSize(USER_NAME, user.getName());
+        }
+        if (user.getEmail() != null) {
+            size += CodedOutputStream.computeStringSize(USER_EMAIL, user.getEmail());
+        }
+        if (user.getAge() != null) {
+            size += CodedOutputStream.computeInt32Size(USER_AGE, user.getAge());
+        }
+        return size;
+    }
+
+    private static int readInt32(CodedInputStream in, int tag) throws IOException {
+        expectWireType(tag, WireFormat.WIRETYPE_VARINT);
+        return in.readInt32();
+    }
+
+    private static String readString(CodedInputStream in, int tag) throws IOException {
+        expectWireType(tag, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        return in.readStringRequireUtf8();
+    }
+
+    private static void expectWireType(int tag, int wireType) throws InvalidProtocolBufferException {
+        if (WireFormat.getTagWireType(tag) != wireType) {
+            throw new InvalidProtocolBufferException("Field " + WireFormat.getTagFieldNumber(tag)
+                    + " has wire type " + WireFormat.getTagWireType(tag) + ", expected " + wireType);
+        }
+    }
+}
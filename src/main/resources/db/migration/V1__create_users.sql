@@ -0,0 +1,13 @@
+CREATE SEQUENCE users_id_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE users (
+    id         integer                     NOT NULL,
+    name       varchar(255)                NOT NULL,
+    email      varchar(255)                NOT NULL,
+    age        integer,
+    created_at timestamp(0),
+    updated_at timestamp(6) with time zone NOT NULL,
+    version    bigint                      NOT NULL,
+    CONSTRAINT users_pkey PRIMARY KEY (id),
+    CONSTRAINT users_email_key UNIQUE (email)
+);
@@ -0,0 +1,13 @@
+CREATE SEQUENCE user_outbox_id_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE user_outbox (
+    id           bigint                      NOT NULL,
+    aggregate_id integer                     NOT NULL,
+    event_type   varchar(16)                 NOT NULL,
+    payload      text                        NOT NULL,
+    created_at   timestamp(6) with time zone NOT NULL,
+    sent_at      timestamp(6) with time zone,
+    CONSTRAINT user_outbox_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX user_outbox_sent_at_id_idx ON user_outbox (sent_at, id);
@@ -0,0 +1,4 @@
+CREATE INDEX users_age_idx ON users (age);
+CREATE INDEX users_updated_at_idx ON users (updated_at);
+-- text_pattern_ops lets LIKE 'prefix%' use the index whatever the database collation is
+CREATE INDEX users_name_pattern_idx ON users (name text_pattern_ops);
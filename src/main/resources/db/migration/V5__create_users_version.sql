@@ -0,0 +1,36 @@
+-- Collection version for the /users ETag and Last-Modified. Every transaction that writes users bumps it
+-- once, from a trigger deferred to commit: the row lock is taken only while committing, so versions follow
+-- commit order, and last_modified comes from the database clock instead of the application's.
+CREATE TABLE users_version (
+    id            smallint                    NOT NULL DEFAULT 1,
+    changes       bigint                      NOT NULL,
+    last_modified timestamp(6) with time zone,
+    CONSTRAINT users_version_pkey PRIMARY KEY (id),
+    CONSTRAINT users_version_single_row CHECK (id = 1)
+);
+
+INSERT INTO users_version (changes, last_modified) SELECT 0, max(updated_at) FROM users;
+
+CREATE FUNCTION bump_users_version() RETURNS trigger AS $$
+BEGIN
+    -- Row triggers fire once per changed row; the transaction-local flag keeps it to one bump per commit
+    IF TG_LEVEL = 'ROW' AND current_setting('app.users_version_bumped', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+    PERFORM set_config('app.users_version_bumped', 'on', true);
+    -- Qualified, since the function runs with the writer's search_path
+    UPDATE ${flyway:defaultSchema}.users_version
+    SET changes = changes + 1, last_modified = clock_timestamp()
+    WHERE id = 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE CONSTRAINT TRIGGER users_version_bump
+    AFTER INSERT OR UPDATE OR DELETE ON users
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW EXECUTE FUNCTION bump_users_version();
+
+CREATE TRIGGER users_version_bump_truncate
+    AFTER TRUNCATE ON users
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_users_version();
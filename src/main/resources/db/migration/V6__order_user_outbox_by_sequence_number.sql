@@ -0,0 +1,24 @@
+-- Outbox ids come in pooled blocks of 50 per instance, so a user's UPDATED event can get a lower id than its
+-- CREATED one from another instance. sequence_number is drawn by the column default at INSERT instead, while
+-- the writer holds the user's row lock, so a user's events are numbered in the order their transactions commit.
+-- CACHE 1 (the default) matters: with a per-session cache the numbers would stop following that order.
+CREATE SEQUENCE user_outbox_sequence_number_seq CACHE 1;
+
+ALTER TABLE user_outbox ADD COLUMN sequence_number bigint;
+
+UPDATE user_outbox o
+SET sequence_number = numbered.sequence_number
+FROM (SELECT id, row_number() OVER (ORDER BY id) AS sequence_number FROM user_outbox) numbered
+WHERE o.id = numbered.id;
+
+SELECT setval('user_outbox_sequence_number_seq', max(sequence_number))
+FROM user_outbox
+HAVING max(sequence_number) IS NOT NULL;
+
+ALTER TABLE user_outbox
+    ALTER COLUMN sequence_number SET DEFAULT nextval('user_outbox_sequence_number_seq'),
+    ALTER COLUMN sequence_number SET NOT NULL;
+ALTER SEQUENCE user_outbox_sequence_number_seq OWNED BY user_outbox.sequence_number;
+
+DROP INDEX user_outbox_sent_at_id_idx;
+CREATE INDEX user_outbox_sent_at_sequence_number_idx ON user_outbox (sent_at, sequence_number);
@@ -0,0 +1,172 @@
+package ru.aston.user;
+
+import ru.aston.user.dto.UserDTO;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.aston.user.UserServiceAppTest.createUserJson;
+
+
+@SpringBootTest(properties = "app.outbox.relay.enabled=false")
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveUserServiceAppTest {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldCreateGetUpdateAndDeleteUser() {
+        UserDTO created = create("Reactive", "reactive@mail.ru", 30);
+        String path = "/users/" + created.getId();
+
+        webTestClient.get().uri(path)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0-json\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Reactive")
+                .jsonPath("$.email").isEqualTo("reactive@mail.ru");
+
+        webTestClient.get().uri(path)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0-json\"")
+                .exchange()
+                .expectStatus().isNotModified();
+
+        webTestClient.patch().uri(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"0-json\"")
+                .bodyValue("{ \"age\": 31 }")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1-json\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Reactive")
+                .jsonPath("$.age").isEqualTo(31);
+
+        // The cached snapshot from the first GET was evicted by the update
+        webTestClient.get().uri(path)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.age").isEqualTo(31);
+
+        webTestClient.delete().uri(path)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("User deleted successfully");
+
+        webTestClient.get().uri(path)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("User with ID " + created.getId() + " not found");
+
+        List<String> events = jdbcTemplate.queryForList(
+                "SELECT event_type FROM user_outbox WHERE aggregate_id = ? ORDER BY sequence_number", String.class,
+                created.getId());
+        assertEquals(List.of("CREATED", "UPDATED", "DELETED"), events);
+    }
+
+    @Test
+    void shouldRejectDuplicateAndInvalidUsers() {
+        create("Twice", "twice@mail.ru", 40);
+
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(createUserJson("Twice", "twice@mail.ru", 41))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("User with this email twice@mail.ru already exists");
+
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(createUserJson("Minus", "minus@mail.ru", -5))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").value(containsString("age - Age should be more than 0"));
+    }
+
+    @Test
+    void shouldRejectPatchWithStaleIfMatch() {
+        UserDTO created = create("Stale", "stale@mail.ru", 50);
+        String path = "/users/" + created.getId();
+
+        webTestClient.patch().uri(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"age\": 51 }")
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.patch().uri(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue("{ \"age\": 52 }")
+                .exchange()
+                .expectStatus().isEqualTo(409);
+
+        webTestClient.patch().uri("/users/999999")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"age\": 52 }")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldPageAndStreamUsers() {
+        for (int i = 0; i < 3; i++) {
+            create("Paged" + i, "paged" + i + "@mail.ru", 20 + i);
+        }
+
+        webTestClient.get().uri("/users?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("X-Next-Cursor")
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2);
+
+        List<UserDTO> streamed = webTestClient.get().uri("/users")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(UserDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        Integer count = jdbcTemplate.queryForObject("SELECT count(*) FROM users", Integer.class);
+        assertEquals(count, streamed.size());
+        assertTrue(streamed.stream().anyMatch(user -> "paged2@mail.ru".equals(user.getEmail())));
+        for (int i = 1; i < streamed.size(); i++) {
+            assertTrue(streamed.get(i - 1).getId() < streamed.get(i).getId());
+        }
+    }
+
+    private UserDTO create(String name, String email, int age) {
+        return webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(createUserJson(name, email, age))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(UserDTO.class)
+                .returnResult()
+                .getResponseBody();
+    }
+}
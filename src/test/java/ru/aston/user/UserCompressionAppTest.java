@@ -0,0 +1,108 @@
+package ru.aston.user;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.StringJoiner;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+// Compression is done by Tomcat, so unlike UserServiceAppTest this one needs a real server
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "app.outbox.relay.enabled=false")
+class UserCompressionAppTest {
+    private static final int USERS = 100;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Emails left by an earlier run come back as duplicates, which is fine: only the row count matters
+    @BeforeEach
+    void setUp() throws Exception {
+        StringJoiner users = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < USERS; i++) {
+            users.add(UserServiceAppTest.createUserJson("Gzip" + i, "gzip" + i + "@mail.ru", 30));
+        }
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(uri("/users/batch"))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(users.toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+    }
+
+    @Test
+    void shouldCompressLargeListsForClientsAcceptingGzip() throws Exception {
+        HttpResponse<InputStream> response = get("/users?limit=" + USERS, "gzip");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        assertTrue(response.headers().firstValue(HttpHeaders.ETAG).orElseThrow().startsWith("W/"));
+        assertEquals(USERS, gunzipJson(response).size());
+    }
+
+    @Test
+    void shouldStreamWholeCollectionAsCompressedJsonArray() throws Exception {
+        int total = jdbcTemplate.queryForObject("SELECT count(*) FROM users", Integer.class);
+
+        HttpResponse<InputStream> response = get("/users/all", "gzip");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        JsonNode users = gunzipJson(response);
+        assertTrue(users.isArray());
+        assertTrue(users.size() >= total);
+    }
+
+    @Test
+    void shouldNotCompressWithoutAcceptEncodingOrBelowThreshold() throws Exception {
+        HttpResponse<InputStream> plain = get("/users?limit=" + USERS, null);
+        assertFalse(plain.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isPresent());
+        try (InputStream body = plain.body()) {
+            assertEquals(USERS, objectMapper.readTree(body).size());
+        }
+
+        HttpResponse<InputStream> small = get("/users?limit=1", "gzip");
+        assertFalse(small.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isPresent());
+        small.body().close();
+    }
+
+    private HttpResponse<InputStream> get(String path, String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path));
+        if (acceptEncoding != null) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private JsonNode gunzipJson(HttpResponse<InputStream> response) throws IOException {
+        try (InputStream body = new GZIPInputStream(response.body())) {
+            return objectMapper.readTree(body);
+        }
+    }
+}
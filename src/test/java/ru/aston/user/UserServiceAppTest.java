@@ -1,10 +1,36 @@
 package ru.aston.user;
 
+import ru.aston.user.config.UserProtobufHttpMessageConverter;
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.util.UserProtobuf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UnknownFieldSet;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -15,16 +41,21 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
-@SpringBootTest
+@SpringBootTest(properties = "app.outbox.relay.enabled=false")
 @AutoConfigureMockMvc
 public class UserServiceAppTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void shouldGetAllUsers() throws Exception {
         String firstJson = createUserJson("Inna", "inna@mail.ru", 28);
@@ -120,6 +151,30 @@ public class UserServiceAppTest {
                         .andExpect(status().isOk());
     }
 
+    @Test
+    void shouldPatchOnlySuppliedFields() throws Exception {
+        String created = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(createUserJson("Vera", "vera@mail.ru", 40)))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+
+        int id = new ObjectMapper().readTree(created).get("id").asInt();
+
+        mockMvc.perform(patch("/users/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"age\": 41 }"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.name").value("Vera"))
+                        .andExpect(jsonPath("$.email").value("vera@mail.ru"))
+                        .andExpect(jsonPath("$.age").value(41));
+
+        mockMvc.perform(get("/users/" + id))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.age").value(41));
+    }
+
     @Test
     void shouldRejectInvalidUpdatedUser() throws Exception {
         String jsonCreate = createUserJson("Kirill", "kirill@gmail.com", 20);
@@ -221,6 +276,445 @@ public class UserServiceAppTest {
                                 value(Matchers.containsString("BAD_REQUEST")));
     }
 
+    @Test
+    void shouldCreateUsersInBatchReportingDuplicates() throws Exception {
+        String json = "[" + createUserJson("Olga", "olga@mail.ru", 33) + ","
+                + createUserJson("Olga", "olga@mail.ru", 34) + ","
+                + createUserJson("Pavel", "pavel@mail.ru", -1) + "]";
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.created").value(1))
+                        .andExpect(jsonPath("$.failed").value(2))
+                        .andExpect(jsonPath("$.items[0].status").value("CREATED"))
+                        .andExpect(jsonPath("$.items[1].status").value("DUPLICATE"))
+                        .andExpect(jsonPath("$.items[2].status").value("INVALID"));
+    }
+
+    @Test
+    void shouldLookUpUsersByIdsInRequestedOrder() throws Exception {
+        String json = "[" + createUserJson("Lookup", "lookup1@mail.ru", 25) + ","
+                + createUserJson("Lookup", "lookup2@mail.ru", 26) + "]";
+        JsonNode created = new ObjectMapper().readTree(mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString());
+        int first = created.get("items").get(0).get("id").asInt();
+        int second = created.get("items").get(1).get("id").asInt();
+
+        mockMvc.perform(get("/users")
+                        .param("ids", second + "," + first + ",999999," + second))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.users", hasSize(2)))
+                        .andExpect(jsonPath("$.users[0].email").value("lookup2@mail.ru"))
+                        .andExpect(jsonPath("$.users[1].email").value("lookup1@mail.ru"))
+                        .andExpect(jsonPath("$.missing", hasSize(1)))
+                        .andExpect(jsonPath("$.missing[0]").value(999999));
+
+        mockMvc.perform(post("/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + first + ", 999998]"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.users[0].email").value("lookup1@mail.ru"))
+                        .andExpect(jsonPath("$.missing[0]").value(999998));
+
+        mockMvc.perform(post("/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, null]"))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.message").value("Ids should not contain null"));
+    }
+
+    @Test
+    void shouldRejectMalformedParametersWithBadRequest() throws Exception {
+        mockMvc.perform(get("/users").param("after", "abc"))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.message").value("after - Invalid value 'abc'"));
+
+        mockMvc.perform(get("/users").param("ids", "1,x"))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.message").value(Matchers.startsWith("ids - Invalid value")));
+
+        mockMvc.perform(get("/users/search").param("minAge", "old"))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.message").value("minAge - Invalid value 'old'"));
+
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ not json"))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.message").value("Malformed request body"));
+    }
+
+    @Test
+    void shouldNegotiateBinaryFormats() throws Exception {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setName("Binary");
+        userDTO.setEmail("binary@mail.ru");
+        userDTO.setAge(41);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        CodedOutputStream out = CodedOutputStream.newInstance(body);
+        UserProtobuf.writeUser(out, userDTO);
+        out.flush();
+
+        byte[] created = mockMvc.perform(post("/users")
+                        .contentType(UserProtobufHttpMessageConverter.PROTOBUF)
+                        .accept(UserProtobufHttpMessageConverter.PROTOBUF)
+                        .content(body.toByteArray()))
+                        .andExpect(status().isCreated())
+                        .andExpect(content().contentType(UserProtobufHttpMessageConverter.PROTOBUF))
+                        .andReturn().getResponse().getContentAsByteArray();
+        UserDTO createdDTO = UserProtobuf.readUser(CodedInputStream.newInstance(created));
+        Assertions.assertEquals("binary@mail.ru", createdDTO.getEmail());
+        int id = createdDTO.getId();
+
+        byte[] smile = mockMvc.perform(get("/users/" + id).accept("application/x-jackson-smile"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string("Vary", Matchers.containsString("Accept")))
+                        .andReturn().getResponse().getContentAsByteArray();
+        Assertions.assertEquals("Binary", new ObjectMapper(new SmileFactory()).readTree(smile).get("name").asText());
+
+        byte[] cbor = mockMvc.perform(get("/users/search").param("email", "binary@mail.ru").accept("application/cbor"))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsByteArray();
+        Assertions.assertEquals(41, new ObjectMapper(new CBORFactory()).readTree(cbor).get(0).get("age").asInt());
+
+        byte[] list = mockMvc.perform(get("/users/search").param("email", "binary@mail.ru")
+                        .accept(UserProtobufHttpMessageConverter.PROTOBUF))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsByteArray();
+        ByteString listed = UnknownFieldSet.parseFrom(list).getField(1).getLengthDelimitedList().getFirst();
+        Assertions.assertEquals(id, UserProtobuf.readUser(listed.newCodedInput()).getId());
+
+        mockMvc.perform(get("/users/" + id).accept(MediaType.ALL))
+                        .andExpect(status().isOk())
+                        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+
+        byte[] error = mockMvc.perform(get("/users/999999").accept(UserProtobufHttpMessageConverter.PROTOBUF))
+                        .andExpect(status().isNotFound())
+                        .andReturn().getResponse().getContentAsByteArray();
+        Assertions.assertEquals("NOT_FOUND", UnknownFieldSet.parseFrom(error).getField(3)
+                .getLengthDelimitedList().getFirst().toStringUtf8());
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(UserProtobufHttpMessageConverter.PROTOBUF)
+                        .content("[]"))
+                        .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void shouldSearchUsersByNamePrefixAndAgeRange() throws Exception {
+        String json = "[" + createUserJson("Searchable", "searchable1@mail.ru", 25) + ","
+                + createUserJson("Searchable", "searchable2@mail.ru", 45) + ","
+                + createUserJson("Other", "searchable3@mail.ru", 25) + "]";
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                        .andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/search")
+                        .param("namePrefix", "Search")
+                        .param("minAge", "20")
+                        .param("maxAge", "30"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$", hasSize(1)))
+                        .andExpect(jsonPath("$[0].email").value("searchable1@mail.ru"));
+
+        mockMvc.perform(get("/users/search")
+                        .param("email", "searchable3@mail.ru"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$", hasSize(1)))
+                        .andExpect(jsonPath("$[0].name").value("Other"));
+    }
+
+    @Test
+    void shouldAnswerConditionalGetWithNotModified() throws Exception {
+        String created = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(createUserJson("Etag", "etag@mail.ru", 22)))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+        int id = new ObjectMapper().readTree(created).get("id").asInt();
+
+        String eTag = mockMvc.perform(get("/users/" + id))
+                        .andExpect(status().isOk())
+                        .andReturn()
+                        .getResponse()
+                        .getHeader("ETag");
+
+        mockMvc.perform(get("/users/" + id).header("If-None-Match", eTag))
+                        .andExpect(status().isNotModified())
+                        .andExpect(content().string(""));
+
+        // The protobuf body is a different representation, so the JSON tag does not revalidate it
+        mockMvc.perform(get("/users/" + id).header("If-None-Match", eTag).accept("application/x-protobuf"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string("ETag", Matchers.not(eTag)));
+
+        mockMvc.perform(patch("/users/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"age\": 23 }"))
+                        .andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/" + id).header("If-None-Match", eTag))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string("ETag", Matchers.not(eTag)))
+                        .andExpect(jsonPath("$.age").value(23));
+
+        String listETag = mockMvc.perform(get("/users"))
+                        .andExpect(header().exists("Last-Modified"))
+                        .andReturn()
+                        .getResponse()
+                        .getHeader("ETag");
+
+        mockMvc.perform(get("/users").header("If-None-Match", listETag))
+                        .andExpect(status().isNotModified());
+
+        mockMvc.perform(delete("/users/" + id))
+                        .andExpect(status().isOk());
+
+        mockMvc.perform(get("/users").header("If-None-Match", listETag))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string("ETag", Matchers.not(listETag)));
+    }
+
+    @Test
+    void shouldBumpCollectionVersionOncePerCommit() throws Exception {
+        long before = jdbcTemplate.queryForObject("SELECT sum(changes) FROM users_version", Long.class);
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + createUserJson("Vera", "version.vera@mail.ru", 40) + ","
+                                + createUserJson("Vlad", "version.vlad@mail.ru", 41) + ","
+                                + createUserJson("Vova", "version.vova@mail.ru", 42) + "]"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.created").value(3));
+
+        long after = jdbcTemplate.queryForObject("SELECT sum(changes) FROM users_version", Long.class);
+        Assertions.assertEquals(before + 1, after);
+    }
+
+    @Test
+    void shouldCountEveryCommitOfConcurrentWriters() throws Exception {
+        long before = jdbcTemplate.queryForObject("SELECT sum(changes) FROM users_version", Long.class);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < 8; writer++) {
+                int w = writer;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        jdbcTemplate.update("INSERT INTO users (id, name, email, age, created_at, updated_at, version) "
+                                + "VALUES (nextval('users_id_seq'), 'Writer', ?, 30, now(), now(), 0)",
+                                "writer" + w + "." + i + "@mail.ru");
+                    }
+                }));
+            }
+            for (Future<?> future : writers) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        long after = jdbcTemplate.queryForObject("SELECT sum(changes) FROM users_version", Long.class);
+        Assertions.assertEquals(before + 200, after);
+    }
+
+    @Test
+    void shouldRejectPatchWithStaleIfMatch() throws Exception {
+        String created = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(createUserJson("Ifmatch", "ifmatch@mail.ru", 50)))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+        int id = new ObjectMapper().readTree(created).get("id").asInt();
+
+        String eTag = mockMvc.perform(get("/users/" + id))
+                        .andReturn()
+                        .getResponse()
+                        .getHeader("ETag");
+
+        mockMvc.perform(patch("/users/" + id)
+                        .header("If-Match", eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"age\": 51 }"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string("ETag", Matchers.not(eTag)));
+
+        mockMvc.perform(patch("/users/" + id)
+                        .header("If-Match", eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"age\": 52 }"))
+                        .andExpect(status().isConflict())
+                        .andExpect(jsonPath("$.status").value("CONFLICT"));
+
+        mockMvc.perform(get("/users/" + id))
+                        .andExpect(jsonPath("$.age").value(51));
+    }
+
+    @Test
+    void shouldExportUsersToGzipCsvInBackground() throws Exception {
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(createUserJson("Export", "export@mail.ru", 40)))
+                        .andExpect(status().isCreated());
+
+        String started = mockMvc.perform(post("/users/exports").param("format", "csv"))
+                        .andExpect(status().isAccepted())
+                        .andExpect(header().exists("Location"))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+        String jobId = new ObjectMapper().readTree(started).get("id").asText();
+
+        String status = "";
+        for (int attempt = 0; attempt < 100 && !status.equals("COMPLETED"); attempt++) {
+            Thread.sleep(50);
+            String job = mockMvc.perform(get("/users/exports/" + jobId))
+                        .andExpect(status().isOk())
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+            status = new ObjectMapper().readTree(job).get("status").asText();
+        }
+
+        byte[] file = mockMvc.perform(get("/users/exports/" + jobId + "/file"))
+                        .andExpect(status().isOk())
+                        .andExpect(content().contentType("application/gzip"))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsByteArray();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(file))) {
+            String csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            Assertions.assertTrue(csv.startsWith("id,name,email,age\n"));
+            Assertions.assertTrue(csv.contains(",Export,export@mail.ru,40\n"));
+        }
+    }
+
+    @Test
+    void shouldRejectUnsupportedExportFormat() throws Exception {
+        mockMvc.perform(post("/users/exports").param("format", "xlsx"))
+                        .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldImportCsvReportingInvalidAndDuplicateLines() throws Exception {
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(createUserJson("Existing", "import.existing@mail.ru", 40)))
+                        .andExpect(status().isCreated());
+
+        String csv = """
+                id,name,email,age
+                ,Import,import1@mail.ru,25
+                ,"Import, Quoted",import2@mail.ru,
+                ,I,import3@mail.ru,30
+                ,Again,import1@mail.ru,26
+                ,Existing,import.existing@mail.ru,41
+                ,Aged,import4@mail.ru,old
+                """;
+
+        mockMvc.perform(post("/users/import")
+                        .contentType("text/csv")
+                        .content(csv))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.received").value(6))
+                        .andExpect(jsonPath("$.created").value(2))
+                        .andExpect(jsonPath("$.invalid").value(2))
+                        .andExpect(jsonPath("$.duplicates").value(2))
+                        .andExpect(jsonPath("$.errors[*].line", Matchers.contains(4, 5, 6, 7)))
+                        .andExpect(jsonPath("$.errors[0].status").value("INVALID"))
+                        .andExpect(jsonPath("$.errors[1].status").value("DUPLICATE"));
+
+        mockMvc.perform(get("/users/search")
+                        .param("email", "import2@mail.ru"))
+                        .andExpect(jsonPath("$[0].name").value("Import, Quoted"))
+                        .andExpect(jsonPath("$[0].age").doesNotExist());
+
+        // Hibernate draws ids from the same sequence as the import
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(createUserJson("Import", "import5@mail.ru", 20)))
+                        .andExpect(status().isCreated());
+    }
+
+    @Test
+    void shouldImportGzipNdjson() throws Exception {
+        String ndjson = """
+                {"name":"Ndjson","email":"import.ndjson@mail.ru","age":33}
+                {"name":"Broken"
+                """;
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(ndjson.getBytes(StandardCharsets.UTF_8));
+        }
+
+        mockMvc.perform(post("/users/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .header("Content-Encoding", "gzip")
+                        .content(gzip.toByteArray()))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.created").value(1))
+                        .andExpect(jsonPath("$.invalid").value(1))
+                        .andExpect(jsonPath("$.errors[0].line").value(2));
+
+        String found = mockMvc.perform(get("/users/search")
+                        .param("email", "import.ndjson@mail.ru"))
+                        .andExpect(jsonPath("$", hasSize(1)))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+        int id = new ObjectMapper().readTree(found).get(0).get("id").asInt();
+
+        JsonNode event = new ObjectMapper().readTree(jdbcTemplate.queryForObject(
+                "SELECT payload FROM user_outbox WHERE aggregate_id = ?", String.class, id));
+        Assertions.assertEquals("CREATED", event.get("type").asText());
+        Assertions.assertEquals("import.ndjson@mail.ru", event.get("email").asText());
+        Assertions.assertEquals(33, event.get("age").asInt());
+    }
+
+    @Test
+    void shouldReportImportedLinesWhenUploadBreaksOff() throws Exception {
+        StringBuilder csv = new StringBuilder("name,email,age\n");
+        for (int i = 0; i < 2000; i++) {
+            csv.append("Truncated,truncated").append(i).append("@mail.ru,").append(20 + i % 50).append('\n');
+        }
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(csv.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] truncated = Arrays.copyOf(gzip.toByteArray(), gzip.size() / 2);
+
+        String body = mockMvc.perform(post("/users/import")
+                        .contentType("text/csv")
+                        .header("Content-Encoding", "gzip")
+                        .content(truncated))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.failure", Matchers.containsString("could not be read after line")))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString();
+
+        long created = new ObjectMapper().readTree(body).get("created").asLong();
+        Assertions.assertTrue(created > 0 && created < 2000);
+        Assertions.assertEquals(created, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM users WHERE email LIKE 'truncated%'", Long.class));
+    }
+
+    @Test
+    void shouldRejectCsvImportWithoutEmailColumn() throws Exception {
+        mockMvc.perform(post("/users/import")
+                        .contentType("text/csv")
+                        .content("name,age\nNoEmail,20\n"))
+                        .andExpect(status().isBadRequest());
+    }
+
     public static String createUserJson(String name, String email, int age) {
         return String.format("""
         { "name": "%s", "email": "%s", "age": %d }
@@ -0,0 +1,99 @@
+package ru.aston.user.benchmark;
+
+import ru.aston.user.UserServiceApp;
+
+import java.util.concurrent.TimeUnit;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+
+// Time from SpringApplication.run to a ready context against a users table that already holds
+// USERS rows. "create" is the old hbm2ddl=create startup, which drops and rebuilds the schema,
+// so the table is refilled before each of its invocations; "flyway" only checks the schema history
+// and lets Hibernate validate the mapping. Readiness includes the email filter warm-up, which only
+// has rows to scan in "flyway" mode because "create" has just thrown them away.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+    private static final int USERS = 500_000;
+
+    @Param({"create", "flyway"})
+    public String schema;
+
+    private EmbeddedPostgres postgres;
+    private JdbcTemplate jdbcTemplate;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        start().close();
+    }
+
+    @Setup(Level.Invocation)
+    public void populate() {
+        Integer users = jdbcTemplate.queryForObject("SELECT count(*) FROM users", Integer.class);
+        if (users == null || users < USERS) {
+            jdbcTemplate.update("""
+                    INSERT INTO users (id, name, email, age, created_at, updated_at, version)
+                    SELECT i, md5(i::text), 'user' || i || '@mail.ru', i % 100, now(), now(), 0
+                    FROM generate_series(1, ?) AS i
+                    """, USERS);
+            jdbcTemplate.execute("ANALYZE users");
+        }
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext startUp() {
+        context = start();
+        return context;
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(UserServiceApp.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--spring.flyway.enabled=" + schema.equals("flyway"),
+                        "--spring.jpa.properties.hibernate.hbm2ddl.auto=" + (schema.equals("flyway") ? "validate" : "create"),
+                        "--app.flyway.clean-on-start=false",
+                        "--app.outbox.relay.enabled=false",
+                        "--logging.level.root=WARN");
+    }
+}
@@ -0,0 +1,84 @@
+package ru.aston.user.benchmark;
+
+import ru.aston.user.controller.UserController;
+import ru.aston.user.entity.User;
+import ru.aston.user.mapper.UserMapper;
+import ru.aston.user.service.core.UserService;
+import ru.aston.user.util.UserExceptionHandler;
+import ru.aston.user.util.UserNotFoundException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+
+// Cost per request of a 404 against a 200 through the real controller and exception handler,
+// plus the price of the exception alone with and without a captured stack trace.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserErrorPathBenchmark {
+    private static final int EXISTING_ID = 1;
+    private static final int MISSING_ID = 2;
+
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setUp() {
+        User user = new User("Lena", "lena@mail.ru", 25);
+        user.setId(EXISTING_ID);
+        user.setVersion(0L);
+
+        UserService userService = new UserService(null, null, null, null, null, null) {
+            @Override
+            public User getUserById(Integer id) {
+                if (id == EXISTING_ID) {
+                    return user;
+                }
+                throw new UserNotFoundException("User with ID " + id + " not found");
+            }
+        };
+
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new UserController(userService, null, new UserMapper(), new ObjectMapper()))
+                .setControllerAdvice(new UserExceptionHandler(new SimpleMeterRegistry(), Duration.ofSeconds(1)))
+                .build();
+    }
+
+    @Benchmark
+    public int foundUser() throws Exception {
+        return mockMvc.perform(get("/users/" + EXISTING_ID)).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int missingUser() throws Exception {
+        return mockMvc.perform(get("/users/" + MISSING_ID)).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public RuntimeException stacklessException() {
+        return new UserNotFoundException("User with ID " + MISSING_ID + " not found");
+    }
+
+    @Benchmark
+    public RuntimeException exceptionWithStackTrace() {
+        return new RuntimeException("User with ID " + MISSING_ID + " not found");
+    }
+}
@@ -0,0 +1,53 @@
+package ru.aston.user.benchmark;
+
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.util.UserErrorResponse;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserErrorResponseBenchmark {
+    private BindingResult singleError;
+    private BindingResult threeErrors;
+
+    @Setup
+    public void setUp() {
+        UserDTO userDTO = new UserDTO();
+
+        singleError = new BeanPropertyBindingResult(userDTO, "userDTO");
+        singleError.rejectValue("age", "Min", "Age should be more than 0");
+
+        threeErrors = new BeanPropertyBindingResult(userDTO, "userDTO");
+        threeErrors.rejectValue("name", "NotEmpty", "Name could not be empty");
+        threeErrors.rejectValue("email", "Email", "Email should be valid");
+        threeErrors.rejectValue("age", "Min", "Age should be more than 0");
+    }
+
+    @Benchmark
+    public String singleFieldError() {
+        return UserErrorResponse.getErrorMessage(singleError);
+    }
+
+    @Benchmark
+    public String threeFieldErrors() {
+        return UserErrorResponse.getErrorMessage(threeErrors);
+    }
+}
@@ -0,0 +1,94 @@
+package ru.aston.user.benchmark;
+
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.util.UserProtobuf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.protobuf.CodedOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+// Writes a user list the way the message converters do, straight into the response stream.
+// The encoded size of each format is printed once per trial, next to the timings.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserFormatBenchmark {
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"JSON", "SMILE", "CBOR", "PROTOBUF"})
+    private Format format;
+
+    private ObjectWriter listWriter;
+    private List<UserDTO> users;
+
+    @Setup
+    public void setUp() throws IOException {
+        listWriter = format.objectMapper().writerFor(new ObjectMapper().getTypeFactory()
+                .constructCollectionType(List.class, UserDTO.class));
+
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            UserDTO userDTO = new UserDTO();
+            userDTO.setId(i);
+            userDTO.setName("User" + i);
+            userDTO.setEmail("user" + i + "@mail.ru");
+            userDTO.setAge(i % 100);
+            users.add(userDTO);
+        }
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        write(encoded);
+        System.out.printf("%n%s, %d users: %d bytes%n", format, size, encoded.size());
+    }
+
+    @Benchmark
+    public void serializeToStream() throws IOException {
+        write(OutputStream.nullOutputStream());
+    }
+
+    private void write(OutputStream out) throws IOException {
+        if (format == Format.PROTOBUF) {
+            CodedOutputStream coded = CodedOutputStream.newInstance(out, 8192);
+            UserProtobuf.writeUsers(coded, users);
+            coded.flush();
+        } else {
+            listWriter.writeValue(out, users);
+        }
+    }
+
+    public enum Format {
+        JSON, SMILE, CBOR, PROTOBUF;
+
+        ObjectMapper objectMapper() {
+            return switch (this) {
+                case SMILE -> new ObjectMapper(new SmileFactory());
+                case CBOR -> new ObjectMapper(new CBORFactory());
+                default -> new ObjectMapper();
+            };
+        }
+    }
+}
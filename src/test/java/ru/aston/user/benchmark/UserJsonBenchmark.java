@@ -0,0 +1,63 @@
+package ru.aston.user.benchmark;
+
+import ru.aston.user.dto.UserDTO;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserJsonBenchmark {
+    @Param({"1000", "100000"})
+    private int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectWriter listWriter;
+    private List<UserDTO> users;
+
+    @Setup
+    public void setUp() {
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, UserDTO.class));
+
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            UserDTO userDTO = new UserDTO();
+            userDTO.setId(i);
+            userDTO.setName("User" + i);
+            userDTO.setEmail("user" + i + "@mail.ru");
+            userDTO.setAge(i % 100);
+            users.add(userDTO);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeToBytes() throws Exception {
+        return listWriter.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public void serializeToStream() throws Exception {
+        listWriter.writeValue(OutputStream.nullOutputStream(), users);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.aston.user.benchmark;
+
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.entity.User;
+import ru.aston.user.mapper.UserMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+    private static final int LIST_SIZE = 10_000;
+
+    private final UserMapper userMapper = new UserMapper();
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    private User user;
+    private UserDTO userDTO;
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        user = new User("Lena", "lena@mail.ru", 25);
+        user.setId(1);
+
+        userDTO = new UserDTO();
+        userDTO.setName("Lena");
+        userDTO.setEmail("lena@mail.ru");
+        userDTO.setAge(25);
+
+        users = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            User listUser = new User("User" + i, "user" + i + "@mail.ru", i % 100);
+            listUser.setId(i);
+            users.add(listUser);
+        }
+    }
+
+    @Benchmark
+    public UserDTO userMapperToDTO() {
+        return userMapper.toDTO(user);
+    }
+
+    @Benchmark
+    public UserDTO modelMapperToDTO() {
+        return modelMapper.map(user, UserDTO.class);
+    }
+
+    @Benchmark
+    public User userMapperToEntity() {
+        return userMapper.toEntity(userDTO);
+    }
+
+    @Benchmark
+    public User modelMapperToEntity() {
+        return modelMapper.map(userDTO, User.class);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<UserDTO> userMapperList() {
+        return userMapper.toDTOList(users);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<UserDTO> modelMapperList() {
+        return users.stream()
+                .map(listUser -> modelMapper.map(listUser, UserDTO.class))
+                .toList();
+    }
+}
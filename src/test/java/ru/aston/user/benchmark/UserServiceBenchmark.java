@@ -0,0 +1,95 @@
+package ru.aston.user.benchmark;
+
+import ru.aston.user.UserServiceApp;
+import ru.aston.user.entity.User;
+import ru.aston.user.service.core.UserService;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+    private static final int USERS = 1_000;
+
+    private final AtomicInteger emailSequence = new AtomicInteger();
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+
+    @Setup
+    public void setUp() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        context = new SpringApplicationBuilder(UserServiceApp.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--app.outbox.relay.enabled=false",
+                        "--logging.level.root=WARN");
+        userService = context.getBean(UserService.class);
+
+        for (int i = 0; i < USERS; i++) {
+            userService.createUser(newUser());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        context.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public User getUserById() {
+        return userService.getUserById(randomId());
+    }
+
+    @Benchmark
+    public List<User> getUsersPage() {
+        return userService.getUsersPage(0, 100);
+    }
+
+    @Benchmark
+    public User createUser() {
+        return userService.createUser(newUser());
+    }
+
+    @Benchmark
+    public User updateUser() {
+        return userService.updateUser(randomId(), new User(null, null, ThreadLocalRandom.current().nextInt(150)));
+    }
+
+    private User newUser() {
+        int sequence = emailSequence.incrementAndGet();
+        return new User("User" + sequence, "bench" + sequence + "@mail.ru", sequence % 100);
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, USERS + 1);
+    }
+}
@@ -0,0 +1,72 @@
+package ru.aston.user.benchmark;
+
+import ru.aston.user.dto.UserDTO;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.groups.Default;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserValidationBenchmark {
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private UserDTO validUser;
+    private UserDTO invalidUser;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+
+        validUser = new UserDTO();
+        validUser.setName("Lena");
+        validUser.setEmail("lena@mail.ru");
+        validUser.setAge(25);
+
+        invalidUser = new UserDTO();
+        invalidUser.setName("");
+        invalidUser.setEmail("wrong-email");
+        invalidUser.setAge(-1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserDTO>> validateValidUser() {
+        return validator.validate(validUser, UserDTO.OnCreate.class, Default.class);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserDTO>> validateInvalidUser() {
+        return validator.validate(invalidUser, UserDTO.OnCreate.class, Default.class);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserDTO>> validatePartialUpdate() {
+        return validator.validate(invalidUser, UserDTO.OnUpdate.class, Default.class);
+    }
+}
@@ -0,0 +1,56 @@
+package ru.aston.user.config;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class CompressionThresholdFilterTest {
+    private static final byte[] LINE = "{\"id\":1}\n".getBytes(StandardCharsets.UTF_8);
+
+    private final CompressionThresholdFilter filter = new CompressionThresholdFilter(2048);
+
+    @Test
+    void shouldHoldBackFlushOfSmallBody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/users/1"), response, (req, res) -> {
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            res.getOutputStream().write(LINE);
+            res.getOutputStream().flush();
+            assertFalse(res.isCommitted());
+        });
+    }
+
+    @Test
+    void shouldFlushNdjsonLineByLine() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/users"), response, (req, res) -> {
+            res.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            res.getOutputStream().write(LINE);
+            res.getOutputStream().flush();
+            assertTrue(res.isCommitted());
+        });
+    }
+
+    // A StreamingResponseBody writes on its async thread; its flushes have to reach the client as they come
+    @Test
+    void shouldFlushStreamingResponseBody() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/all");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            req.startAsync();
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            res.getOutputStream().write(LINE);
+            res.getOutputStream().flush();
+            assertTrue(res.isCommitted());
+        });
+    }
+}
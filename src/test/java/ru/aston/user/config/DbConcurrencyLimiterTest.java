@@ -0,0 +1,149 @@
+package ru.aston.user.config;
+
+import ru.aston.user.controller.UserController;
+import ru.aston.user.entity.User;
+import ru.aston.user.mapper.UserMapper;
+import ru.aston.user.repository.UsersVersion;
+import ru.aston.user.service.batch.UserBatchService;
+import ru.aston.user.service.core.UserService;
+import ru.aston.user.util.UserExceptionHandler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+class DbConcurrencyLimiterTest {
+
+    @Test
+    void shouldNeverRunMoreServiceCallsThanPermits() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        UserService target = mock(UserService.class);
+        when(target.getUserById(anyInt())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            running.decrementAndGet();
+            return new User("Lena", "lena@mail.ru", 25);
+        });
+
+        DbConcurrencyLimiter limiter = new DbConcurrencyLimiter(4, Duration.ofSeconds(10));
+        UserService userService = proxy(target, limiter);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<User>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int id = i;
+                futures.add(executor.submit(() -> userService.getUserById(id)));
+            }
+            for (Future<User> future : futures) {
+                future.get();
+            }
+        }
+
+        assertTrue(maxRunning.get() <= 4, "max concurrent calls was " + maxRunning.get());
+        assertEquals(4, limiter.availablePermits());
+    }
+
+    @Test
+    void shouldFailFastWhenNoPermitBecomesAvailable() {
+        UserService target = mock(UserService.class);
+        DbConcurrencyLimiter limiter = new DbConcurrencyLimiter(0, Duration.ofMillis(10));
+        UserService userService = proxy(target, limiter);
+
+        assertThrows(TransientDataAccessResourceException.class, () -> userService.getUserById(1));
+    }
+
+    @Test
+    void shouldTakeOnePermitPerRequestAcrossServiceCalls() {
+        UserService target = mock(UserService.class);
+        DbConcurrencyLimiter limiter = new DbConcurrencyLimiter(1, Duration.ofMillis(10));
+        UserService userService = proxy(target, limiter);
+
+        try (DbConcurrencyLimiter.RequestScope ignored = limiter.openRequest()) {
+            userService.getUsersVersion();
+            assertEquals(0, limiter.availablePermits());
+            // With a permit per call this second one would queue behind the first and could time out
+            userService.getUsersPage(0, 10);
+            assertEquals(0, limiter.availablePermits());
+        }
+
+        assertEquals(1, limiter.availablePermits());
+        userService.getUsersVersion();
+        assertEquals(1, limiter.availablePermits());
+    }
+
+    @Test
+    void shouldNotHoldPermitForRequestWithoutServiceCalls() {
+        DbConcurrencyLimiter limiter = new DbConcurrencyLimiter(1, Duration.ofMillis(10));
+
+        try (DbConcurrencyLimiter.RequestScope ignored = limiter.openRequest()) {
+            assertEquals(1, limiter.availablePermits());
+        }
+
+        assertEquals(1, limiter.availablePermits());
+    }
+
+    @Test
+    void shouldReleasePermitWhenHandlerReturns() {
+        DbConcurrencyLimiter limiter = new DbConcurrencyLimiter(1, Duration.ofMillis(10));
+        UserService target = mock(UserService.class);
+        when(target.getUsersVersion()).thenReturn(new UsersVersion(0, 0, Instant.now()));
+        when(target.getUsersPage(0, 1)).thenAnswer(invocation -> {
+            // Still the permit the version read took, not a second one
+            assertEquals(0, limiter.availablePermits());
+            return List.of();
+        });
+        UserController controller = proxy(new UserController(proxy(target, limiter),
+                mock(UserBatchService.class), new UserMapper(), new ObjectMapper()), limiter);
+
+        controller.getAllUsers(0, 1, null);
+
+        // The body is written after the handler returns, without a permit
+        assertEquals(1, limiter.availablePermits());
+    }
+
+    @Test
+    void shouldAnswerServiceUnavailableWhenNoPermitComesFree() throws Exception {
+        DbConcurrencyLimiter limiter = new DbConcurrencyLimiter(0, Duration.ofMillis(10));
+        UserController controller = proxy(new UserController(proxy(mock(UserService.class), limiter),
+                mock(UserBatchService.class), new UserMapper(), new ObjectMapper()), limiter);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new UserExceptionHandler(new SimpleMeterRegistry(), Duration.ofSeconds(1)))
+                .build();
+
+        mockMvc.perform(get("/users/1"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    private static <T> T proxy(T target, DbConcurrencyLimiter limiter) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(limiter);
+        return factory.getProxy();
+    }
+}
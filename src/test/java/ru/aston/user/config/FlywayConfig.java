@@ -0,0 +1,22 @@
+package ru.aston.user.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+// Test databases start from an empty schema on every boot, the way hbm2ddl=create used to;
+// Flyway still refuses to clean unless spring.flyway.clean-disabled=false.
+@Configuration
+@ConditionalOnProperty(name = "app.flyway.clean-on-start", havingValue = "true")
+public class FlywayConfig {
+
+    @Bean
+    public FlywayMigrationStrategy cleanMigrationStrategy() {
+        return flyway -> {
+            flyway.clean();
+            flyway.migrate();
+        };
+    }
+}
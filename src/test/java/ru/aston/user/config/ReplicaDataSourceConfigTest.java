@@ -0,0 +1,93 @@
+package ru.aston.user.config;
+
+import ru.aston.user.UserServiceApp;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+
+// Two independent embedded PostgreSQL servers stand in for a primary and its replica;
+// the server port tells which one answered.
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReplicaDataSourceConfigTest {
+    private static final String SERVER_PORT = "SELECT inet_server_port()";
+
+    private static EmbeddedPostgres primary;
+    private static EmbeddedPostgres replica;
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void startUp() throws Exception {
+        primary = EmbeddedPostgres.start();
+        replica = EmbeddedPostgres.start();
+        // The email warm-up scan is a read-only transaction and therefore runs on the replica
+        new JdbcTemplate(replica.getPostgresDatabase()).execute("CREATE TABLE users (email varchar(255))");
+
+        context = new SpringApplicationBuilder(UserServiceApp.class)
+                .web(WebApplicationType.NONE)
+                .profiles("replicas")
+                .run(
+                        "--spring.datasource.url=" + primary.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--spring.datasource.hikari.connection-timeout=1000",
+                        "--app.datasource.replicas.urls=" + replica.getJdbcUrl("postgres", "postgres"),
+                        "--app.outbox.relay.enabled=false",
+                        "--logging.level.root=WARN");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        context.close();
+        primary.close();
+    }
+
+    @Test
+    @Order(1)
+    void shouldRouteReadOnlyTransactionsToReplicaAndTheRestToPrimary() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(
+                context.getBean(PlatformTransactionManager.class));
+
+        transactionTemplate.setReadOnly(true);
+        assertEquals(replica.getPort(), serverPort(transactionTemplate));
+
+        transactionTemplate.setReadOnly(false);
+        assertEquals(primary.getPort(), serverPort(transactionTemplate));
+        assertNotNull(context.getBean(MeterRegistry.class)
+                .find("hikaricp.connections.pending").tag("pool", "replica-0").gauge());
+    }
+
+    @Test
+    @Order(2)
+    void shouldServeReadsFromPrimaryOnceReplicaIsEjected() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(
+                context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+
+        replica.close();
+        // let Hikari's alive-bypass window lapse so borrowed connections are validated
+        Thread.sleep(1000);
+
+        assertEquals(primary.getPort(), serverPort(transactionTemplate));
+        assertEquals(0, context.getBean(ReplicaRoutingDataSource.class).healthyReplicas());
+    }
+
+    private static int serverPort(TransactionTemplate transactionTemplate) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject(SERVER_PORT, Integer.class));
+    }
+}
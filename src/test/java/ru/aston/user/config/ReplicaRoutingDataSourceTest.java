@@ -0,0 +1,221 @@
+package ru.aston.user.config;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource firstReplica;
+
+    @Mock
+    private DataSource secondReplica;
+
+    private final AtomicBoolean pinned = new AtomicBoolean();
+
+    @Test
+    void shouldRoundRobinAcrossReplicas() throws SQLException {
+        Connection first = mock(Connection.class);
+        Connection second = mock(Connection.class);
+        when(firstReplica.getConnection()).thenReturn(first);
+        when(secondReplica.getConnection()).thenReturn(second);
+        ReplicaRoutingDataSource dataSource = routing(Duration.ofSeconds(30));
+
+        assertSame(first, dataSource.getConnection());
+        assertSame(second, dataSource.getConnection());
+        assertSame(first, dataSource.getConnection());
+    }
+
+    @Test
+    void shouldEjectFailingReplicaAndFallBackToPrimary() throws SQLException {
+        Connection primaryConnection = mock(Connection.class);
+        when(firstReplica.getConnection()).thenThrow(new SQLException("down"));
+        when(secondReplica.getConnection()).thenThrow(new SQLException("down"));
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        ReplicaRoutingDataSource dataSource = routing(Duration.ofMinutes(1));
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertSame(primaryConnection, dataSource.getConnection());
+
+        assertEquals(0, dataSource.healthyReplicas());
+        verify(firstReplica, times(1)).getConnection();
+        verify(secondReplica, times(1)).getConnection();
+    }
+
+    @Test
+    void shouldReadFromPrimaryWhilePinned() throws SQLException {
+        Connection primaryConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        pinned.set(true);
+
+        assertSame(primaryConnection, routing(Duration.ofSeconds(30)).getConnection());
+    }
+
+    @Test
+    void shouldPinClientToPrimaryAfterItsOwnWrite() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofMinutes(1), 100, Set.of("/users/lookup"));
+
+        assertFalse(pinnedDuring(filter, "GET", "alice"));
+        assertTrue(pinnedDuring(filter, "PATCH", "alice"));
+        assertTrue(pinnedDuring(filter, "GET", "alice"));
+        assertFalse(pinnedDuring(filter, "GET", "bob"));
+        assertFalse(ReadYourWritesFilter.isPinned());
+    }
+
+    @Test
+    void shouldNotPinClientForReadOnlyPost() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofMinutes(1), 100, Set.of("/users/lookup"));
+        MockHttpServletRequest lookup = new MockHttpServletRequest("POST", "/users/lookup");
+        lookup.addHeader(ReadYourWritesFilter.CLIENT_ID_HEADER, "alice");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean pinned = new AtomicBoolean();
+
+        filter.doFilter(lookup, response, (req, res) -> pinned.set(ReadYourWritesFilter.isPinned()));
+
+        assertFalse(pinned.get());
+        assertNull(response.getCookie(ReadYourWritesFilter.PINNED_UNTIL_COOKIE));
+        assertFalse(pinnedDuring(filter, "GET", "alice"));
+    }
+
+    // Without X-Client-Id only the cookie pins, or one write would pin everybody behind the same NAT
+    @Test
+    void shouldNotPinOtherClientsSharingWritersAddress() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofMinutes(1), 100, Set.of("/users/lookup"));
+        MockHttpServletRequest write = new MockHttpServletRequest("PATCH", "/users/1");
+        write.setRemoteAddr("10.0.0.1");
+        filter.doFilter(write, new MockHttpServletResponse(), (req, res) -> { });
+
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/users/1");
+        read.setRemoteAddr("10.0.0.1");
+        AtomicBoolean pinned = new AtomicBoolean();
+        filter.doFilter(read, new MockHttpServletResponse(), (req, res) -> pinned.set(ReadYourWritesFilter.isPinned()));
+
+        assertFalse(pinned.get());
+    }
+
+    @Test
+    void shouldPassCredentialsToChosenDataSource() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(firstReplica.getConnection("reader", "secret")).thenReturn(connection);
+
+        assertSame(connection, routing(Duration.ofSeconds(30)).getConnection("reader", "secret"));
+    }
+
+    @Test
+    void shouldPinWriterWhileItsWriteIsStillRunning() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofMinutes(1), 100, Set.of("/users/lookup"));
+        AtomicBoolean concurrentReadPinned = new AtomicBoolean();
+
+        MockHttpServletRequest write = new MockHttpServletRequest("PATCH", "/users/1");
+        write.addHeader(ReadYourWritesFilter.CLIENT_ID_HEADER, "alice");
+        filter.doFilter(write, new MockHttpServletResponse(),
+                (req, res) -> concurrentReadPinned.set(pinnedDuring(filter, "GET", "alice")));
+
+        assertTrue(concurrentReadPinned.get());
+    }
+
+    // The cookie is what pins the client on an instance that did not see the write
+    @Test
+    void shouldPinClientOnOtherInstanceByCookie() throws Exception {
+        ReadYourWritesFilter writingInstance = new ReadYourWritesFilter(Duration.ofMinutes(1), 100, Set.of("/users/lookup"));
+        ReadYourWritesFilter readingInstance = new ReadYourWritesFilter(Duration.ofMinutes(1), 100, Set.of("/users/lookup"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writingInstance.doFilter(new MockHttpServletRequest("POST", "/users"), response, (req, res) -> { });
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.PINNED_UNTIL_COOKIE);
+        assertNotNull(cookie);
+
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/users/1");
+        read.setRemoteAddr("10.0.0.2");
+        read.setCookies(cookie);
+        AtomicBoolean pinned = new AtomicBoolean();
+        readingInstance.doFilter(read, new MockHttpServletResponse(),
+                (req, res) -> pinned.set(ReadYourWritesFilter.isPinned()));
+        assertTrue(pinned.get());
+
+        read = new MockHttpServletRequest("GET", "/users/1");
+        read.setRemoteAddr("10.0.0.2");
+        read.setCookies(new Cookie(ReadYourWritesFilter.PINNED_UNTIL_COOKIE,
+                Long.toString(System.currentTimeMillis() + Duration.ofDays(1).toMillis())));
+        readingInstance.doFilter(read, new MockHttpServletResponse(),
+                (req, res) -> pinned.set(ReadYourWritesFilter.isPinned()));
+        assertFalse(pinned.get());
+    }
+
+    @Test
+    void shouldKeepPinningOnAsyncThreadOfStreamingResponse() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofMinutes(1), 100, Set.of("/users/lookup"));
+        pinnedDuring(filter, "DELETE", "alice");
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/all");
+        request.setAsyncSupported(true);
+        request.addHeader(ReadYourWritesFilter.CLIENT_ID_HEADER, "alice");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        CompletableFuture<Boolean> pinnedAsync = new CompletableFuture<>();
+
+        filter.doFilter(request, response, (req, res) -> {
+            WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(req);
+            asyncManager.setAsyncWebRequest(
+                    new StandardServletAsyncWebRequest((HttpServletRequest) req, (HttpServletResponse) res));
+            asyncManager.setTaskExecutor(new SimpleAsyncTaskExecutor());
+            try {
+                asyncManager.startCallableProcessing(() -> pinnedAsync.complete(ReadYourWritesFilter.isPinned()));
+            } catch (Exception e) {
+                throw new ServletException(e);
+            }
+        });
+
+        assertTrue(pinnedAsync.get(10, TimeUnit.SECONDS));
+    }
+
+    private ReplicaRoutingDataSource routing(Duration ejection) {
+        return new ReplicaRoutingDataSource(primary, List.of(firstReplica, secondReplica), pinned::get, ejection);
+    }
+
+    private static boolean pinnedDuring(ReadYourWritesFilter filter, String method, String clientId)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/users/1");
+        request.addHeader(ReadYourWritesFilter.CLIENT_ID_HEADER, clientId);
+        AtomicBoolean pinned = new AtomicBoolean();
+
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> pinned.set(ReadYourWritesFilter.isPinned()));
+
+        return pinned.get();
+    }
+}
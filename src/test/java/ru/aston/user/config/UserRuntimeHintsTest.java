@@ -0,0 +1,38 @@
+package ru.aston.user.config;
+
+import ru.aston.user.dto.UserBatchResult;
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.outbox.UserEvent;
+import ru.aston.user.repository.UsersVersion;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class UserRuntimeHintsTest {
+    private final RuntimeHints hints = new RuntimeHints();
+
+    UserRuntimeHintsTest() {
+        new UserRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void shouldRegisterJacksonBindingForUserTypes() throws Exception {
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(UserDTO.class.getMethod("getEmail")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(UserDTO.class.getMethod("setEmail", String.class)).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(UserEvent.class.getMethod("occurredAt")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(UserBatchResult.class.getMethod("getItems")).test(hints));
+    }
+
+    @Test
+    void shouldRegisterReflectivelyCreatedTypes() throws Exception {
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(UsersVersion.class.getConstructor(long.class, long.class, Instant.class)).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(JsonSerializer.class.getConstructor()).test(hints));
+    }
+}
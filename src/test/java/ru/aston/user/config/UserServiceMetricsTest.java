@@ -0,0 +1,79 @@
+package ru.aston.user.config;
+
+import ru.aston.user.UserServiceAppTest;
+import ru.aston.user.util.UserExceptionHandler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@SpringBootTest(properties = "app.outbox.relay.enabled=false")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class UserServiceMetricsTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldRecordServiceTimersRowsAndErrors() throws Exception {
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UserServiceAppTest.createUserJson("Mila", "mila@mail.ru", 22)))
+                        .andExpect(status().isCreated());
+        mockMvc.perform(get("/users"))
+                        .andExpect(status().isOk());
+        mockMvc.perform(get("/users/424242"))
+                        .andExpect(status().isNotFound());
+
+        assertNotNull(meterRegistry.find(UserServiceMetrics.TIMER_NAME)
+                .tags("method", "createUser", "exception", "none").timer());
+        assertNotNull(meterRegistry.find(UserServiceMetrics.TIMER_NAME)
+                .tags("method", "getUsersPage", "exception", "none").timer());
+        assertNotNull(meterRegistry.find(UserServiceMetrics.TIMER_NAME)
+                .tags("method", "getUserById", "exception", "UserNotFoundException").timer());
+        assertNotNull(meterRegistry.find(UserServiceMetrics.ROWS_NAME)
+                .tag("method", "getUsersPage").summary());
+        assertEquals(1.0, meterRegistry.find(UserExceptionHandler.ERRORS_NAME)
+                .tags("exception", "UserNotFoundException", "status", "404").counter().count());
+        assertNotNull(meterRegistry.find("http.server.requests").tag("uri", "/users/{id}").timer());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                        .andExpect(status().isOk())
+                        .andExpect(content().string(containsString("user_service_seconds_bucket")))
+                        .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                        .andExpect(content().string(containsString("user_errors_total")));
+    }
+
+    @Test
+    void shouldExposeConnectionPoolSaturation() throws Exception {
+        mockMvc.perform(get("/users"))
+                        .andExpect(status().isOk());
+
+        assertNotNull(meterRegistry.find("hikaricp.connections.active").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.idle").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.pending").gauge());
+        assertTrue(meterRegistry.find("hikaricp.connections.acquire").timer().count() > 0);
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                        .andExpect(status().isOk())
+                        .andExpect(content().string(containsString("hikaricp_connections_pending")))
+                        .andExpect(content().string(containsString("hikaricp_connections_acquire_seconds_bucket")));
+    }
+}
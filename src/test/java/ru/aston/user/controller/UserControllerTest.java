@@ -1,24 +1,50 @@
 package ru.aston.user.controller;
 
+import ru.aston.user.dto.UserBatchItemResult;
+import ru.aston.user.dto.UserBatchResult;
 import ru.aston.user.dto.UserDTO;
+import ru.aston.user.dto.UserLookupResult;
+import ru.aston.user.dto.UserSearchCriteria;
 import ru.aston.user.entity.User;
+import ru.aston.user.repository.UserView;
+import ru.aston.user.repository.UsersVersion;
+import ru.aston.user.mapper.UserMapper;
+import ru.aston.user.service.batch.UserBatchService;
+import ru.aston.user.service.core.UserLookup;
 import ru.aston.user.service.core.UserService;
+import ru.aston.user.util.UserLookupException;
 import ru.aston.user.util.UserNotCreatedException;
 import ru.aston.user.util.UserNotUpdatedException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.BindingResult;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -32,7 +58,13 @@ class UserControllerTest {
     private UserService userService;
 
     @Mock
-    private ModelMapper modelMapper;
+    private UserBatchService userBatchService;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
 
     @InjectMocks
     private UserController userController;
@@ -51,7 +83,8 @@ class UserControllerTest {
         user2.setEmail("anna@mail.ru");
         user2.setAge(31);
 
-        when(userService.getAllUsers()).thenReturn(List.of(user1, user2));
+        when(userService.getUsersVersion()).thenReturn(new UsersVersion(2, 3, Instant.now()));
+        when(userService.getUsersPage(0, UserController.DEFAULT_PAGE_SIZE)).thenReturn(List.of(user1, user2));
 
         UserDTO dto1 = new UserDTO();
         dto1.setId(1);
@@ -65,15 +98,198 @@ class UserControllerTest {
         dto2.setEmail("anna@mail.ru");
         dto2.setAge(31);
 
-        when(modelMapper.map(user1, UserDTO.class)).thenReturn(dto1);
-        when(modelMapper.map(user2, UserDTO.class)).thenReturn(dto2);
+        when(userMapper.toDTOList(List.of(user1, user2))).thenReturn(List.of(dto1, dto2));
 
-        List<UserDTO> result = userController.getAllUsers();
+        ResponseEntity<List<UserDTO>> response = userController.getAllUsers(0, UserController.DEFAULT_PAGE_SIZE, null);
+        List<UserDTO> result = response.getBody();
 
+        assertNotNull(result);
         assertEquals(2, result.size());
         assertEquals("Inna", result.get(0).getName());
         assertEquals("Anna", result.get(1).getName());
-        verify(userService, times(1)).getAllUsers();
+        assertNull(response.getHeaders().getFirst(UserController.NEXT_CURSOR_HEADER));
+        verify(userService, times(1)).getUsersPage(0, UserController.DEFAULT_PAGE_SIZE);
+    }
+
+    @Test
+    void shouldLookUpUsersAndReportMissingIds() {
+        User user = new User("Inna", "inna@mail.ru", 28);
+        user.setId(2);
+        UserDTO dto = new UserDTO();
+        dto.setId(2);
+
+        when(userService.getUsersByIds(List.of(5, 2))).thenReturn(new UserLookup(List.of(user), List.of(5)));
+        when(userMapper.toDTOList(List.of(user))).thenReturn(List.of(dto));
+
+        UserLookupResult result = userController.lookUpUsers(List.of(5, 2)).getBody();
+
+        assertNotNull(result);
+        assertEquals(List.of(dto), result.getUsers());
+        assertEquals(List.of(5), result.getMissing());
+    }
+
+    @Test
+    void shouldRejectLookupOfTooManyIds() {
+        List<Integer> ids = IntStream.rangeClosed(1, UserController.MAX_PAGE_SIZE + 1).boxed().toList();
+
+        assertThrows(UserLookupException.class, () -> userController.getUsersByIds(ids));
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void shouldReturnNextCursorWhenPageIsFull() {
+        User user = new User("Inna", "inna@mail.ru", 28);
+        user.setId(7);
+
+        UserDTO dto = new UserDTO();
+        dto.setId(7);
+        dto.setName("Inna");
+
+        when(userService.getUsersVersion()).thenReturn(new UsersVersion(1, 3, Instant.now()));
+        when(userService.getUsersPage(3, 1)).thenReturn(List.of(user));
+        when(userMapper.toDTOList(List.of(user))).thenReturn(List.of(dto));
+
+        ResponseEntity<List<UserDTO>> response = userController.getAllUsers(3, 1, null);
+
+        assertEquals("7", response.getHeaders().getFirst(UserController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void shouldReturnNotModifiedWithoutLoadingPage() {
+        Instant lastModified = Instant.parse("2025-01-01T10:15:30.123456Z");
+        when(userService.getUsersVersion()).thenReturn(new UsersVersion(5, 3, lastModified));
+        String eTag = userController.getAllUsers(0, 1, null).getHeaders().getETag();
+        assertTrue(eTag.startsWith("W/"));
+
+        ResponseEntity<List<UserDTO>> response = userController.getAllUsers(0, 1, eTag.substring("W/".length()));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(eTag, response.getHeaders().getETag());
+        assertEquals(lastModified.getEpochSecond() * 1000, response.getHeaders().getLastModified());
+        assertNull(response.getBody());
+        verify(userService, times(1)).getUsersPage(0, 1);
+    }
+
+    @Test
+    void shouldReturnSearchResultsWithCursor() {
+        UserSearchCriteria criteria = new UserSearchCriteria(null, "In", null, null);
+        UserView user = mock(UserView.class);
+
+        UserDTO dto = new UserDTO();
+        dto.setId(4);
+        dto.setName("Inna");
+
+        when(userService.searchUsers(criteria, 0, 1)).thenReturn(List.of(user));
+        when(userMapper.viewsToDTOList(List.of(user))).thenReturn(List.of(dto));
+
+        ResponseEntity<List<UserDTO>> response = userController.searchUsers(criteria, 0, 1);
+
+        assertEquals(List.of(dto), response.getBody());
+        assertEquals("4", response.getHeaders().getFirst(UserController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void shouldClampPageSizeToMaximum() {
+        when(userService.getUsersVersion()).thenReturn(new UsersVersion(0, 0, null));
+        when(userService.getUsersPage(0, UserController.MAX_PAGE_SIZE)).thenReturn(List.of());
+
+        userController.getAllUsers(0, Integer.MAX_VALUE, null);
+
+        verify(userService, times(1)).getUsersPage(0, UserController.MAX_PAGE_SIZE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamUsersAsNdjson() throws Exception {
+        User user1 = new User("Inna", "inna@mail.ru", 28);
+        User user2 = new User("Anna", "anna@mail.ru", 31);
+
+        UserDTO dto1 = new UserDTO();
+        dto1.setId(1);
+        dto1.setName("Inna");
+
+        UserDTO dto2 = new UserDTO();
+        dto2.setId(2);
+        dto2.setName("Anna");
+
+        when(userMapper.toDTO(user1)).thenReturn(dto1);
+        when(userMapper.toDTO(user2)).thenReturn(dto2);
+        doAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(0);
+            consumer.accept(user1);
+            consumer.accept(user2);
+            return null;
+        }).when(userService).streamAllUsers(any());
+
+        StreamingResponseBody body = userController.streamAllUsers().getBody();
+        assertNotNull(body);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("Inna", objectMapper.readTree(lines[0]).get("name").asText());
+        assertEquals("Anna", objectMapper.readTree(lines[1]).get("name").asText());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamUsersAsJsonArray() throws Exception {
+        User user1 = new User("Inna", "inna@mail.ru", 28);
+        User user2 = new User("Anna", "anna@mail.ru", 31);
+
+        UserDTO dto1 = new UserDTO();
+        dto1.setId(1);
+        dto1.setName("Inna");
+
+        UserDTO dto2 = new UserDTO();
+        dto2.setId(2);
+        dto2.setName("Anna");
+
+        when(userService.getUsersVersion()).thenReturn(new UsersVersion(2, 3, Instant.now()));
+        when(userMapper.toDTO(user1)).thenReturn(dto1);
+        when(userMapper.toDTO(user2)).thenReturn(dto2);
+        doAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(0);
+            consumer.accept(user1);
+            consumer.accept(user2);
+            return null;
+        }).when(userService).streamAllUsers(any());
+
+        ResponseEntity<StreamingResponseBody> response = userController.streamAllUsersAsJson(null);
+        assertNotNull(response.getBody());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        JsonNode users = objectMapper.readTree(out.toByteArray());
+        assertEquals(2, users.size());
+        assertEquals("Inna", users.get(0).get("name").asText());
+        assertEquals("Anna", users.get(1).get("name").asText());
+        assertNotNull(response.getHeaders().getETag());
+    }
+
+    @Test
+    void shouldStreamEmptyJsonArray() throws Exception {
+        when(userService.getUsersVersion()).thenReturn(new UsersVersion(0, 0, null));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        userController.streamAllUsersAsJson(null).getBody().writeTo(out);
+
+        assertEquals("[]", out.toString());
+    }
+
+    @Test
+    void shouldNotStreamUnchangedCollection() {
+        when(userService.getUsersVersion()).thenReturn(new UsersVersion(5, 3, Instant.now()));
+        String eTag = userController.streamAllUsersAsJson(null).getHeaders().getETag();
+
+        ResponseEntity<StreamingResponseBody> response = userController.streamAllUsersAsJson(eTag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(userService, never()).streamAllUsers(any());
     }
 
     @Test
@@ -92,9 +308,9 @@ class UserControllerTest {
         dto.setAge(25);
 
         when(userService.getUserById(id)).thenReturn(user);
-        when(modelMapper.map(user, UserDTO.class)).thenReturn(dto);
+        when(userMapper.toDTO(user)).thenReturn(dto);
 
-        UserDTO result = userController.getUserById(id);
+        UserDTO result = userController.getUserById(id, null, null).getBody();
 
         assertNotNull(result);
         assertEquals("Lena", result.getName());
@@ -102,6 +318,32 @@ class UserControllerTest {
         verify(userService, times(1)).getUserById(id);
     }
 
+    @Test
+    void shouldReturnNotModifiedWhenUserVersionMatches() {
+        when(userService.getUserVersion(1)).thenReturn(3L);
+
+        ResponseEntity<UserDTO> response = userController.getUserById(1, "\"2-json\", \"3-json\"", null);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"3-json\"", response.getHeaders().getETag());
+        verify(userService, never()).getUserById(1);
+    }
+
+    @Test
+    void shouldTagEachUserRepresentationSeparately() {
+        User user = new User("Lena", "lena@mail.ru", 25);
+        user.setVersion(3L);
+        when(userService.getUserVersion(1)).thenReturn(3L);
+        when(userService.getUserById(1)).thenReturn(user);
+        when(userMapper.toDTO(user)).thenReturn(new UserDTO());
+
+        ResponseEntity<UserDTO> response = userController.getUserById(1, "\"3-json\"",
+                "application/x-protobuf, application/json;q=0.5");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"3-protobuf\"", response.getHeaders().getETag());
+    }
+
     @Test
     void shouldReturnCreatedDTOIfValidRequest() {
         UserDTO requestDto = new UserDTO();
@@ -128,9 +370,9 @@ class UserControllerTest {
         responseDto.setEmail("nastya@mail.ru");
         responseDto.setAge(30);
 
-        when(modelMapper.map(requestDto, User.class)).thenReturn(userToSave);
+        when(userMapper.toEntity(requestDto)).thenReturn(userToSave);
         when(userService.createUser(userToSave)).thenReturn(savedUser);
-        when(modelMapper.map(savedUser, UserDTO.class)).thenReturn(responseDto);
+        when(userMapper.toDTO(savedUser)).thenReturn(responseDto);
 
         ResponseEntity<UserDTO> response = userController.createUser(requestDto, bindingResult);
 
@@ -156,6 +398,44 @@ class UserControllerTest {
         verifyNoInteractions(userService);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPassNdjsonItemsToBatchService() throws Exception {
+        UserBatchResult batchResult = new UserBatchResult();
+        batchResult.add(UserBatchItemResult.created(0, 1));
+        batchResult.add(UserBatchItemResult.created(1, 2));
+
+        doAnswer(invocation -> {
+            Iterator<UserDTO> items = invocation.getArgument(0);
+            assertEquals("Inna", items.next().getName());
+            assertEquals("Anna", items.next().getName());
+            return batchResult;
+        }).when(userBatchService).createUsers(any());
+
+        String ndjson = """
+                { "name": "Inna", "email": "inna@mail.ru", "age": 28 }
+                { "name": "Anna", "email": "anna@mail.ru", "age": 31 }
+                """;
+        ResponseEntity<UserBatchResult> response =
+                userController.createUsersFromNdjson(new ByteArrayInputStream(ndjson.getBytes()));
+
+        assertEquals(200, response.getStatusCode().value());
+        assertNotNull(response.getBody());
+        assertEquals(2, response.getBody().getCreated());
+    }
+
+    @Test
+    void shouldRejectMalformedNdjson() {
+        doAnswer(invocation -> {
+            Iterator<UserDTO> items = invocation.getArgument(0);
+            items.next();
+            return new UserBatchResult();
+        }).when(userBatchService).createUsers(any());
+
+        assertThrows(UserNotCreatedException.class,
+                () -> userController.createUsersFromNdjson(new ByteArrayInputStream("{ not json".getBytes())));
+    }
+
     @Test
     void shouldReturnUpdatedDTOIfValidRequest() {
         int id = 5;
@@ -184,11 +464,11 @@ class UserControllerTest {
         responseDto.setEmail("updated@mail.ru");
         responseDto.setAge(35);
 
-        when(modelMapper.map(requestDto, User.class)).thenReturn(userToUpdate);
+        when(userMapper.toEntity(requestDto)).thenReturn(userToUpdate);
         when(userService.updateUser(id, userToUpdate)).thenReturn(updatedUser);
-        when(modelMapper.map(updatedUser, UserDTO.class)).thenReturn(responseDto);
+        when(userMapper.toDTO(updatedUser)).thenReturn(responseDto);
 
-        ResponseEntity<UserDTO> response = userController.updateUser(id, requestDto, bindingResult);
+        ResponseEntity<UserDTO> response = userController.updateUser(id, requestDto, bindingResult, null, null);
 
         assertEquals(200, response.getStatusCode().value());
         assertNotNull(response.getBody());
@@ -208,7 +488,56 @@ class UserControllerTest {
         bindingResult.rejectValue("age", "Positive", "Age should be more than 0");
 
         assertThrows(UserNotUpdatedException.class,
-                () -> userController.updateUser(id, requestDto, bindingResult));
+                () -> userController.updateUser(id, requestDto, bindingResult, null, null));
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void shouldPassIfMatchVersionToService() {
+        UserDTO requestDto = new UserDTO();
+        requestDto.setAge(40);
+        BindingResult bindingResult = new BeanPropertyBindingResult(requestDto, "userDTO");
+
+        User userToUpdate = new User(null, null, 40);
+        User updatedUser = new User("Lena", "lena@mail.ru", 40);
+        updatedUser.setVersion(8L);
+
+        when(userMapper.toEntity(requestDto)).thenReturn(userToUpdate);
+        when(userService.updateUser(5, userToUpdate)).thenReturn(updatedUser);
+
+        ResponseEntity<UserDTO> response = userController.updateUser(5, requestDto, bindingResult, "\"7\"", null);
+
+        assertEquals(7L, userToUpdate.getVersion());
+        assertEquals("\"8-json\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void shouldCompareOnlyVersionOfIfMatch() {
+        UserDTO requestDto = new UserDTO();
+        BindingResult bindingResult = new BeanPropertyBindingResult(requestDto, "userDTO");
+        User userToUpdate = new User();
+        User updatedUser = new User("Lena", "lena@mail.ru", 40);
+        updatedUser.setVersion(8L);
+
+        when(userMapper.toEntity(requestDto)).thenReturn(userToUpdate);
+        when(userService.updateUser(5, userToUpdate)).thenReturn(updatedUser);
+
+        ResponseEntity<UserDTO> response = userController.updateUser(5, requestDto, bindingResult,
+                "\"7-protobuf\"", "application/cbor");
+
+        assertEquals(7L, userToUpdate.getVersion());
+        assertEquals("\"8-cbor\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void shouldRejectWeakIfMatch() {
+        UserDTO requestDto = new UserDTO();
+        BindingResult bindingResult = new BeanPropertyBindingResult(requestDto, "userDTO");
+        when(userMapper.toEntity(requestDto)).thenReturn(new User());
+
+        assertThrows(UserNotUpdatedException.class,
+                () -> userController.updateUser(5, requestDto, bindingResult, "W/\"7\"", null));
 
         verifyNoInteractions(userService);
     }
@@ -0,0 +1,174 @@
+package ru.aston.user.load;
+
+import ru.aston.user.UserServiceApp;
+import ru.aston.user.dto.UserBatchResult;
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.service.batch.UserBatchService;
+import ru.aston.user.service.core.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.CannotCreateTransactionException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+// Opt-in: mvn test -Dtest=ConnectionPoolLoadTest -Dload=true (starts its own embedded PostgreSQL)
+@EnabledIfSystemProperty(named = "load", matches = "true")
+class ConnectionPoolLoadTest {
+    private static final int USERS = 50_000;
+    private static final int THREADS = 64;
+    private static final int READS_PER_THREAD = 200;
+
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void startUp() throws Exception {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    void shouldCompareDefaultPoolWithHighThroughputProfile() throws Exception {
+        run();
+        run("high-throughput");
+
+        PoolResult defaults = run();
+        PoolResult tuned = run("high-throughput");
+
+        System.out.printf("%-16s %12s %12s %14s %14s %12s %10s%n",
+                "profile", "inserts/s", "reads/s", "acquire avg ms", "acquire max ms", "max pending", "timeouts");
+        print("default", defaults);
+        print("high-throughput", tuned);
+    }
+
+    private static PoolResult run(String... profiles) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApp.class)
+                .web(WebApplicationType.NONE)
+                .profiles(profiles)
+                .run(
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--app.outbox.relay.enabled=false",
+                        "--logging.level.root=OFF")) {
+            double inserts = insert(context.getBean(UserBatchService.class));
+
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            Timer acquire = meterRegistry.get("hikaricp.connections.acquire").timer();
+            long acquiredBefore = acquire.count();
+            double waitedBefore = acquire.totalTime(TimeUnit.MILLISECONDS);
+
+            PendingSampler sampler = new PendingSampler(meterRegistry);
+            Thread.ofPlatform().daemon().start(sampler);
+            AtomicLong timeouts = new AtomicLong();
+            double reads = read(context.getBean(UserService.class), timeouts);
+            sampler.stop();
+
+            double acquireAverage = (acquire.totalTime(TimeUnit.MILLISECONDS) - waitedBefore)
+                    / (acquire.count() - acquiredBefore);
+            return new PoolResult(inserts, reads, acquireAverage,
+                    acquire.max(TimeUnit.MILLISECONDS), sampler.maxPending, timeouts.get());
+        }
+    }
+
+    private static double insert(UserBatchService userBatchService) {
+        String run = Long.toString(System.nanoTime(), 36);
+        List<UserDTO> users = IntStream.range(0, USERS).mapToObj(i -> {
+            UserDTO user = new UserDTO();
+            user.setName("User" + i);
+            user.setEmail("pool" + i + "." + run + "@mail.ru");
+            user.setAge(20 + i % 50);
+            return user;
+        }).toList();
+
+        long start = System.nanoTime();
+        UserBatchResult result = userBatchService.createUsers(users.iterator());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertEquals(USERS, result.getCreated());
+        return USERS / seconds;
+    }
+
+    // More callers than connections, so the pool rather than the database is what they queue on;
+    // a caller that gives up after connection-timeout is counted rather than failing the run
+    private static double read(UserService userService, AtomicLong timeouts) throws Exception {
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>(THREADS);
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < READS_PER_THREAD; i++) {
+                        try {
+                            userService.getUsersPage(ThreadLocalRandom.current().nextInt(USERS), 20);
+                        } catch (CannotCreateTransactionException e) {
+                            timeouts.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return (THREADS * READS_PER_THREAD - timeouts.get()) / seconds;
+    }
+
+    private static void print(String profile, PoolResult result) {
+        System.out.printf("%-16s %12.0f %12.0f %14.3f %14.3f %12d %10d%n", profile, result.inserts(), result.reads(),
+                result.acquireAverage(), result.acquireMax(), result.maxPending(), result.timeouts());
+    }
+
+    private static class PendingSampler implements Runnable {
+        private final MeterRegistry meterRegistry;
+        private final AtomicBoolean running = new AtomicBoolean(true);
+        private volatile int maxPending;
+
+        PendingSampler(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public void run() {
+            while (running.get()) {
+                int pending = (int) meterRegistry.get("hikaricp.connections.pending").gauge().value();
+                maxPending = Math.max(maxPending, pending);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        void stop() {
+            running.set(false);
+        }
+    }
+
+    private record PoolResult(double inserts, double reads, double acquireAverage, double acquireMax,
+                              int maxPending, long timeouts) {
+    }
+}
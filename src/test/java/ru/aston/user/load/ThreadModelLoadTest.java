@@ -0,0 +1,127 @@
+package ru.aston.user.load;
+
+import ru.aston.user.UserServiceApp;
+import ru.aston.user.UserServiceAppTest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+// Opt-in: mvn test -Dtest=ThreadModelLoadTest -Dload=true (needs the PostgreSQL from application.properties)
+@EnabledIfSystemProperty(named = "load", matches = "true")
+class ThreadModelLoadTest {
+    private static final int USERS = 200;
+    private static final int REQUESTS = 10_000;
+    private static final int CONCURRENCY = 1_000;
+
+    @Test
+    void shouldCompareVirtualAndPlatformThreads() throws Exception {
+        LoadResult platform = run();
+        LoadResult virtual = run("virtual-threads");
+
+        System.out.printf("%-10s %12s %10s %10s%n", "mode", "req/s", "p50 ms", "p99 ms");
+        System.out.printf("%-10s %12.0f %10.2f %10.2f%n", "platform", platform.throughput(), platform.p50(), platform.p99());
+        System.out.printf("%-10s %12.0f %10.2f %10.2f%n", "virtual", virtual.throughput(), virtual.p50(), virtual.p99());
+
+        assertEquals(0, platform.errors());
+        assertEquals(0, virtual.errors());
+    }
+
+    private LoadResult run(String... profiles) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApp.class)
+                .profiles(profiles)
+                .run("--server.port=0", "--spring.datasource.hikari.maximum-pool-size=20")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port + "/users";
+
+            try (HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build()) {
+                seed(client, baseUrl);
+                send(client, baseUrl + "?limit=20", CONCURRENCY, 500);
+                return load(client, baseUrl + "?limit=20");
+            }
+        }
+    }
+
+    private void seed(HttpClient client, String baseUrl) throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < USERS; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append(UserServiceAppTest.createUserJson("User" + i, "load" + i + "@mail.ru", 20 + i % 50));
+        }
+        json.append(']');
+
+        client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/batch"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(json.toString()))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private LoadResult load(HttpClient client, String url) throws Exception {
+        long start = System.nanoTime();
+        long[] latencies = send(client, url, CONCURRENCY, REQUESTS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long errors = Arrays.stream(latencies).filter(latency -> latency < 0).count();
+        long[] sorted = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        return new LoadResult(sorted.length / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99), errors);
+    }
+
+    private long[] send(HttpClient client, String url, int concurrency, int requests) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).GET().build();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[requests];
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                int index = i;
+                inFlight.acquire();
+                futures.add(executor.submit(() -> {
+                    long begin = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies[index] = response.statusCode() == 200 ? System.nanoTime() - begin : -1;
+                    } catch (Exception e) {
+                        latencies[index] = -1;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return latencies;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private record LoadResult(double throughput, double p50, double p99, long errors) {
+    }
+}
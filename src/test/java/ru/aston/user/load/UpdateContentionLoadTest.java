@@ -0,0 +1,156 @@
+package ru.aston.user.load;
+
+import ru.aston.user.UserServiceApp;
+import ru.aston.user.entity.User;
+import ru.aston.user.outbox.UserEventType;
+import ru.aston.user.outbox.UserOutbox;
+import ru.aston.user.service.core.UserService;
+import ru.aston.user.util.UserConflictException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+// Opt-in: mvn test -Dtest=UpdateContentionLoadTest -Dload=true (starts its own embedded PostgreSQL)
+@EnabledIfSystemProperty(named = "load", matches = "true")
+class UpdateContentionLoadTest {
+    private static final int USERS = 10_000;
+    private static final int THREADS = 16;
+    private static final int UPDATES_PER_THREAD = 250;
+
+    private static EmbeddedPostgres postgres;
+    private static ConfigurableApplicationContext context;
+    private static UserService userService;
+    private static JdbcTemplate jdbcTemplate;
+
+    private final AtomicLong conflicts = new AtomicLong();
+
+    @BeforeAll
+    static void startUp() throws Exception {
+        // Commit latency would otherwise dominate both modes and hide the cost of holding row locks
+        postgres = EmbeddedPostgres.builder()
+                .setServerConfig("synchronous_commit", "off")
+                .start();
+        context = new SpringApplicationBuilder(UserServiceApp.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--spring.datasource.hikari.maximum-pool-size=" + THREADS,
+                        "--app.outbox.relay.enabled=false",
+                        "--logging.level.root=WARN");
+        userService = context.getBean(UserService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        context.close();
+        postgres.close();
+    }
+
+    // Every mode must account for each update in the row versions; increments must also add up.
+    @Test
+    void shouldKeepEveryUpdateWithoutRowLocks() throws Exception {
+        run(seed("warmup"), id -> userService.updateUser(id, new User(null, null, 30)));
+        run(seed("warmup-locked"), incrementWithRowLock());
+
+        List<Integer> ids = seed("single");
+        double single = run(ids, id -> userService.updateUser(id, new User(null, null, 30)));
+        assertEquals(THREADS * UPDATES_PER_THREAD, sumOf("version", ids));
+
+        ids = seed("optimistic");
+        double optimistic = run(ids, this::incrementWithIfMatch);
+        assertEquals(THREADS * UPDATES_PER_THREAD, sumOf("version", ids));
+        assertEquals(THREADS * UPDATES_PER_THREAD, sumOf("age", ids));
+
+        ids = seed("locked");
+        double locked = run(ids, incrementWithRowLock());
+        assertEquals(THREADS * UPDATES_PER_THREAD, sumOf("version", ids));
+        assertEquals(THREADS * UPDATES_PER_THREAD, sumOf("age", ids));
+
+        System.out.printf("%-20s %12s %10s%n", "mode", "updates/s", "retries");
+        System.out.printf("%-20s %12.0f %10s%n", "single statement", single, "-");
+        System.out.printf("%-20s %12.0f %10d%n", "if-match increment", optimistic, conflicts.get());
+        System.out.printf("%-20s %12.0f %10s%n", "for update increment", locked, "-");
+    }
+
+    private void incrementWithIfMatch(int id) {
+        while (true) {
+            User current = userService.getUserById(id);
+            User patch = new User(null, null, current.getAge() + 1);
+            patch.setVersion(current.getVersion());
+            try {
+                userService.updateUser(id, patch);
+                return;
+            } catch (UserConflictException e) {
+                conflicts.incrementAndGet();
+            }
+        }
+    }
+
+    private static IntConsumer incrementWithRowLock() {
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+        EntityManager entityManager = context.getBean(EntityManager.class);
+        UserOutbox userOutbox = context.getBean(UserOutbox.class);
+
+        return id -> transactionTemplate.executeWithoutResult(status -> {
+            User user = entityManager.find(User.class, id, LockModeType.PESSIMISTIC_WRITE);
+            user.setAge(user.getAge() + 1);
+            userOutbox.record(UserEventType.UPDATED, user);
+        });
+    }
+
+    private static double run(List<Integer> ids, IntConsumer increment) throws Exception {
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>(THREADS);
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                        increment.accept(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return THREADS * UPDATES_PER_THREAD / seconds;
+    }
+
+    private static List<Integer> seed(String prefix) {
+        return jdbcTemplate.queryForList("""
+                INSERT INTO users (id, name, email, age, created_at, updated_at, version)
+                SELECT nextval('users_id_seq'), 'User' || i, ? || i || '@mail.ru', 0, now(), now(), 0
+                FROM generate_series(1, ?) AS i
+                RETURNING id
+                """, Integer.class, prefix, USERS);
+    }
+
+    private static int sumOf(String column, List<Integer> ids) {
+        return jdbcTemplate.queryForObject("SELECT sum(" + column + ") FROM users WHERE id = ANY(?)",
+                Integer.class, (Object) ids.toArray(new Integer[0]));
+    }
+}
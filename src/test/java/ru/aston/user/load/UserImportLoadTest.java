@@ -0,0 +1,89 @@
+package ru.aston.user.load;
+
+import ru.aston.user.UserServiceApp;
+import ru.aston.user.dto.UserBatchResult;
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.dto.UserImportResult;
+import ru.aston.user.service.batch.UserBatchService;
+import ru.aston.user.service.batch.UserImportService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.IntStream;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+// Opt-in: mvn test -Dtest=UserImportLoadTest -Dload=true (starts its own embedded PostgreSQL)
+@EnabledIfSystemProperty(named = "load", matches = "true")
+class UserImportLoadTest {
+    private static final int USERS = 200_000;
+
+    private static EmbeddedPostgres postgres;
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void startUp() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        context = new SpringApplicationBuilder(UserServiceApp.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--app.outbox.relay.enabled=false",
+                        "--logging.level.root=WARN");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        context.close();
+        postgres.close();
+    }
+
+    @Test
+    void shouldCompareBatchInsertWithCopyImport() throws Exception {
+        UserBatchService userBatchService = context.getBean(UserBatchService.class);
+        UserImportService userImportService = context.getBean(UserImportService.class);
+        userBatchService.createUsers(users("warmup.batch").iterator());
+        userImportService.importCsv(csv("warmup.import"));
+
+        long start = System.nanoTime();
+        UserBatchResult batch = userBatchService.createUsers(users("batch").iterator());
+        double batchSeconds = (System.nanoTime() - start) / 1e9;
+
+        UserImportResult imported = userImportService.importCsv(csv("import"));
+
+        assertEquals(USERS, batch.getCreated());
+        assertEquals(USERS, imported.getCreated());
+        System.out.printf("%-8s %12s%n", "path", "rows/s");
+        System.out.printf("%-8s %12.0f%n", "batch", USERS / batchSeconds);
+        System.out.printf("%-8s %12.0f%n", "import", imported.getRowsPerSecond());
+    }
+
+    private static List<UserDTO> users(String run) {
+        return IntStream.range(0, USERS).mapToObj(i -> {
+            UserDTO user = new UserDTO();
+            user.setName("User" + i);
+            user.setEmail("user" + i + "." + run + "@mail.ru");
+            user.setAge(20 + i % 50);
+            return user;
+        }).toList();
+    }
+
+    private static ByteArrayInputStream csv(String run) {
+        StringBuilder csv = new StringBuilder("name,email,age\n");
+        for (UserDTO user : users(run)) {
+            csv.append(user.getName()).append(',').append(user.getEmail()).append(',').append(user.getAge()).append('\n');
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
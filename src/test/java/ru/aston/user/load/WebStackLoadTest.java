@@ -0,0 +1,150 @@
+package ru.aston.user.load;
+
+import ru.aston.user.UserServiceApp;
+import ru.aston.user.UserServiceAppTest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+// Opt-in: mvn test -Dtest=WebStackLoadTest -Dload=true (needs the PostgreSQL from application.properties)
+// Runs the same two reads against Tomcat on platform threads, Tomcat on virtual threads and the
+// reactive profile on Tomcat's reactive adapter, each with a 20 connection pool, to pick the stack per deployment.
+// Every stack has to serve every request, so all of them queue for the database the same way: the
+// virtual-thread one waits for a DbConcurrencyLimiter permit (one per handler call) as long as a platform
+// thread waits for a Hikari connection, instead of shedding after the production 5s.
+@EnabledIfSystemProperty(named = "load", matches = "true")
+class WebStackLoadTest {
+    private static final int USERS = 200;
+    private static final int REQUESTS = 10_000;
+    private static final int CONCURRENCY = 1_000;
+
+    @Test
+    void shouldCompareServletAndReactiveStacks() throws Exception {
+        Map<String, Map<String, LoadResult>> results = new LinkedHashMap<>();
+        results.put("platform", run());
+        results.put("virtual", run("virtual-threads"));
+        results.put("reactive", run("reactive"));
+
+        System.out.printf("%-10s %-10s %12s %10s %10s %8s%n", "stack", "endpoint", "req/s", "p50 ms", "p99 ms", "errors");
+        results.forEach((stack, endpoints) -> endpoints.forEach((endpoint, result) ->
+                System.out.printf("%-10s %-10s %12.0f %10.2f %10.2f %8d%n",
+                        stack, endpoint, result.throughput(), result.p50(), result.p99(), result.errors())));
+
+        results.forEach((stack, endpoints) -> endpoints.forEach((endpoint, result) ->
+                assertEquals(0, result.errors(), stack + " " + endpoint)));
+    }
+
+    private Map<String, LoadResult> run(String... profiles) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApp.class)
+                .profiles(profiles)
+                .run("--server.port=0", "--spring.datasource.hikari.maximum-pool-size=20",
+                        "--app.reactive.r2dbc.pool.max-size=20", "--app.outbox.relay.enabled=false",
+                        "--app.db.acquire-timeout=PT30S")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port + "/users";
+
+            try (HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build()) {
+                List<Integer> ids = seed(client, baseUrl);
+                IntFunction<String> page = i -> baseUrl + "?limit=20";
+                IntFunction<String> byId = i -> baseUrl + "/" + ids.get(i % ids.size());
+
+                Map<String, LoadResult> results = new LinkedHashMap<>();
+                send(client, page, CONCURRENCY, 500);
+                results.put("page", load(client, page));
+                send(client, byId, CONCURRENCY, 500);
+                results.put("by-id", load(client, byId));
+                return results;
+            }
+        }
+    }
+
+    // One POST per user, since the reactive stack has no /users/batch
+    private List<Integer> seed(HttpClient client, String baseUrl) throws Exception {
+        String run = Long.toString(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), 36);
+        List<Integer> ids = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(UserServiceAppTest.createUserJson(
+                                    "User" + i, "stack" + i + "." + run + "@mail.ru", 20 + i % 50)))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(201, response.statusCode(), response.body());
+            ids.add(Integer.valueOf(response.body().replaceAll(".*\"id\":(\\d+).*", "$1")));
+        }
+        return ids;
+    }
+
+    private LoadResult load(HttpClient client, IntFunction<String> url) throws Exception {
+        long start = System.nanoTime();
+        long[] latencies = send(client, url, CONCURRENCY, REQUESTS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long errors = Arrays.stream(latencies).filter(latency -> latency < 0).count();
+        long[] sorted = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        return new LoadResult(sorted.length / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99), errors);
+    }
+
+    private long[] send(HttpClient client, IntFunction<String> url, int concurrency, int requests) throws Exception {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[requests];
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                int index = i;
+                HttpRequest request = HttpRequest.newBuilder(URI.create(url.apply(i))).GET().build();
+                inFlight.acquire();
+                futures.add(executor.submit(() -> {
+                    long begin = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies[index] = response.statusCode() == 200 ? System.nanoTime() - begin : -1;
+                    } catch (Exception e) {
+                        latencies[index] = -1;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return latencies;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private record LoadResult(double throughput, double p50, double p99, long errors) {
+    }
+}
@@ -0,0 +1,55 @@
+package ru.aston.user.mapper;
+
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.entity.User;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+class UserMapperTest {
+    private final UserMapper userMapper = new UserMapper();
+
+    @Test
+    void shouldMapUserToDTO() {
+        User user = new User("Lena", "lena@mail.ru", 25);
+        user.setId(3);
+
+        UserDTO dto = userMapper.toDTO(user);
+
+        assertEquals(3, dto.getId());
+        assertEquals("Lena", dto.getName());
+        assertEquals("lena@mail.ru", dto.getEmail());
+        assertEquals(25, dto.getAge());
+    }
+
+    @Test
+    void shouldMapDTOToUser() {
+        UserDTO dto = new UserDTO();
+        dto.setName("Nastya");
+        dto.setEmail("nastya@mail.ru");
+        dto.setAge(30);
+
+        User user = userMapper.toEntity(dto);
+
+        assertNull(user.getId());
+        assertEquals("Nastya", user.getName());
+        assertEquals("nastya@mail.ru", user.getEmail());
+        assertEquals(30, user.getAge());
+        assertNull(user.getCreatedAt());
+    }
+
+    @Test
+    void shouldMapListPreservingOrder() {
+        User first = new User("Inna", "inna@mail.ru", 28);
+        User second = new User("Anna", "anna@mail.ru", 31);
+
+        List<UserDTO> dtos = userMapper.toDTOList(List.of(first, second));
+
+        assertEquals(2, dtos.size());
+        assertEquals("Inna", dtos.get(0).getName());
+        assertEquals("Anna", dtos.get(1).getName());
+    }
+}
@@ -0,0 +1,131 @@
+package ru.aston.user.outbox;
+
+import ru.aston.user.entity.User;
+import ru.aston.user.repository.OutboxEventRepository;
+import ru.aston.user.service.core.UserService;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "app.outbox.relay.poll-interval=PT1H"
+})
+@EmbeddedKafka(partitions = 1, topics = "user.events")
+class UserOutboxRelayTest {
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserOutboxRelay userOutboxRelay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.kafka.topic.user-events}")
+    private String topic;
+
+    @Test
+    void shouldRelayOutboxEventsToKafkaAndMarkThemSent() throws Exception {
+        userOutboxRelay.drain();
+
+        User created = userService.createUser(new User("Relay", "relay@mail.ru", 33));
+        userService.updateUser(created.getId(), new User(null, null, 34));
+        userService.deleteUser(created.getId());
+
+        assertEquals(3, outboxEventRepository.countBySentAtIsNull());
+
+        assertEquals(3, userOutboxRelay.relayBatch());
+        assertEquals(0, outboxEventRepository.countBySentAtIsNull());
+        assertEquals(0, userOutboxRelay.relayBatch());
+
+        List<JsonNode> events = consumeEvents("outbox-test", created.getId(), 3);
+
+        assertEquals(List.of("CREATED", "UPDATED", "DELETED"),
+                events.stream().map(event -> event.get("type").asText()).toList());
+        assertEquals(34, events.get(1).get("age").asInt());
+    }
+
+    // Another instance's id block can give a user's later event the lower id
+    @Test
+    void shouldRelayEventsInInsertOrderWhateverTheirIds() throws Exception {
+        userOutboxRelay.drain();
+
+        insertEvent(9_000_000_001L, -7, "CREATED", null);
+        insertEvent(9_000_000_000L, -7, "UPDATED", null);
+
+        assertEquals(2, userOutboxRelay.relayBatch());
+
+        assertEquals(List.of("CREATED", "UPDATED"), consumeEvents("outbox-order-test", -7, 2).stream()
+                .map(event -> event.get("type").asText()).toList());
+    }
+
+    @Test
+    void shouldPurgeEventsSentBeforeRetention() {
+        insertEvent(9_000_000_100L, -8, "CREATED", Instant.now().minus(Duration.ofDays(8)));
+        insertEvent(9_000_000_101L, -8, "UPDATED", Instant.now().minus(Duration.ofHours(1)));
+
+        assertTrue(userOutboxRelay.purgeBatch() >= 1);
+
+        assertEquals(List.of("UPDATED"), jdbcTemplate.queryForList(
+                "SELECT event_type FROM user_outbox WHERE aggregate_id = -8", String.class));
+    }
+
+    // The topic is shared by the tests, so only the records of one user are collected
+    private List<JsonNode> consumeEvents(String group, int userId, int count) throws Exception {
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps(group, "false", embeddedKafka);
+        consumerProps.put("auto.offset.reset", "earliest");
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(consumerProps,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, topic);
+
+            List<JsonNode> events = new ArrayList<>();
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (events.size() < count && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                    if (record.key().equals(String.valueOf(userId))) {
+                        events.add(objectMapper.readTree(record.value()));
+                    }
+                }
+            }
+            return events;
+        }
+    }
+
+    private void insertEvent(long id, int aggregateId, String type, Instant sentAt) {
+        jdbcTemplate.update("INSERT INTO user_outbox (id, aggregate_id, event_type, payload, created_at, sent_at) "
+                        + "VALUES (?, ?, ?, ?, now(), ?)", id, aggregateId, type,
+                "{\"type\":\"" + type + "\",\"userId\":" + aggregateId + "}",
+                sentAt == null ? null : Timestamp.from(sentAt));
+    }
+}
@@ -0,0 +1,66 @@
+package ru.aston.user.repository;
+
+import javax.sql.DataSource;
+import java.util.List;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+// Runs the migrations the way application.properties configures them against the schema hbm2ddl=create
+// made for the released User entity, in a schema of its own so the application's one is left alone
+@SpringBootTest(properties = "app.outbox.relay.enabled=false")
+class SchemaUpgradeTest {
+    private static final String SCHEMA = "released_upgrade";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    @Test
+    void shouldUpgradeReleasedSchema() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        jdbcTemplate.execute("CREATE TABLE " + SCHEMA + ".users (age integer, created_at TIMESTAMP(0), "
+                + "id integer GENERATED BY DEFAULT AS IDENTITY, email varchar(255) NOT NULL UNIQUE, "
+                + "name varchar(255) NOT NULL, PRIMARY KEY (id))");
+        jdbcTemplate.update("INSERT INTO " + SCHEMA + ".users (name, email, age, created_at) VALUES "
+                + "('Inna', 'inna@mail.ru', 28, now()), ('Anna', 'anna@mail.ru', NULL, NULL)");
+        int maxId = jdbcTemplate.queryForObject("SELECT max(id) FROM " + SCHEMA + ".users", Integer.class);
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(SCHEMA)
+                .baselineOnMigrate(true)
+                .baselineVersion("3")
+                .load();
+        flyway.migrate();
+
+        assertEquals(0, flyway.info().pending().length);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM " + SCHEMA + ".users "
+                + "WHERE updated_at IS NULL OR version <> 0", Integer.class));
+        assertEquals("NO", jdbcTemplate.queryForObject("SELECT is_identity FROM information_schema.columns "
+                + "WHERE table_schema = ? AND table_name = 'users' AND column_name = 'id'", String.class, SCHEMA));
+
+        // The first id of the next pooled block must not collide with a released row
+        long next = jdbcTemplate.queryForObject("SELECT nextval('" + SCHEMA + ".users_id_seq')", Long.class);
+        assertTrue(next - 49 > maxId);
+
+        List<String> indexes = jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes WHERE schemaname = ?",
+                String.class, SCHEMA);
+        assertTrue(indexes.containsAll(List.of("users_age_idx", "users_updated_at_idx", "users_name_pattern_idx",
+                "user_outbox_sent_at_sequence_number_idx")));
+    }
+}
@@ -0,0 +1,96 @@
+package ru.aston.user.repository;
+
+import ru.aston.user.UserServiceApp;
+
+import java.util.List;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+// Opt-in: mvn test -Dtest=UserSearchExplainTest -Dload=true (starts its own embedded PostgreSQL)
+@EnabledIfSystemProperty(named = "load", matches = "true")
+class UserSearchExplainTest {
+    private static final int USERS = 1_000_000;
+
+    private static EmbeddedPostgres postgres;
+    private static ConfigurableApplicationContext context;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        context = new SpringApplicationBuilder(UserServiceApp.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--app.outbox.relay.enabled=false",
+                        "--logging.level.root=WARN");
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        jdbcTemplate.update("""
+                INSERT INTO users (id, name, email, age, created_at, updated_at, version)
+                SELECT i, md5(i::text), 'user' || i || '@mail.ru', i % 100, now(), now(), 0
+                FROM generate_series(1, ?) AS i
+                """, USERS);
+        jdbcTemplate.execute("ANALYZE users");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        context.close();
+        postgres.close();
+    }
+
+    @Test
+    void shouldUseUniqueIndexForEmail() {
+        assertUsesIndex(explain("SELECT id, name, email, age FROM users WHERE email = 'user424242@mail.ru'"));
+    }
+
+    @Test
+    void shouldUsePatternIndexForNamePrefix() {
+        List<String> plan = explain("""
+                SELECT id, name, email, age FROM users
+                WHERE name LIKE 'abc1%' ESCAPE '\\' AND id > 0
+                ORDER BY id LIMIT 100
+                """);
+
+        assertUsesIndex(plan);
+        assertTrue(plan.stream().anyMatch(line -> line.contains("users_name_pattern_idx")),
+                () -> String.join("\n", plan));
+    }
+
+    // For a single page the planner rightly prefers walking the primary key and filtering on age,
+    // so the range is checked with a limit large enough to cover every match.
+    @Test
+    void shouldUseAgeIndexForNarrowRange() {
+        List<String> plan = explain("""
+                SELECT id, name, email, age FROM users
+                WHERE age BETWEEN 42 AND 42 AND id > 0
+                ORDER BY id LIMIT 100000
+                """);
+
+        assertUsesIndex(plan);
+        assertTrue(plan.stream().anyMatch(line -> line.contains("users_age_idx")),
+                () -> String.join("\n", plan));
+    }
+
+    private static List<String> explain(String sql) {
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+        return plan;
+    }
+
+    private static void assertUsesIndex(List<String> plan) {
+        assertFalse(plan.stream().anyMatch(line -> line.contains("Seq Scan")), () -> String.join("\n", plan));
+    }
+}
@@ -0,0 +1,152 @@
+package ru.aston.user.service.batch;
+
+import ru.aston.user.dto.UserBatchItemResult;
+import ru.aston.user.dto.UserBatchResult;
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.entity.User;
+import ru.aston.user.mapper.UserMapper;
+import ru.aston.user.outbox.UserOutbox;
+import ru.aston.user.repository.UserRepository;
+import ru.aston.user.service.cache.UserEmailFilter;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class UserBatchServiceTest {
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private UserOutbox userOutbox;
+
+    private UserBatchService userBatchService;
+
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Set<String> storedEmails = new HashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        userBatchService = new UserBatchService(userRepository, new UserMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new TransactionTemplate(transactionManager), userOutbox,
+                new UserEmailFilter(userRepository, new TransactionTemplate(transactionManager), 1_000, 0.01), 2);
+
+        lenient().doAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> {
+                user.setId(ids.incrementAndGet());
+                storedEmails.add(user.getEmail());
+            });
+            return users;
+        }).when(userRepository).saveAll(anyList());
+        lenient().when(userRepository.findExistingEmails(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            return emails.stream().filter(storedEmails::contains).collect(Collectors.toSet());
+        });
+    }
+
+    @Test
+    void shouldInsertValidUsersInChunks() {
+        UserBatchResult result = userBatchService.createUsers(List.of(
+                userDTO("Inna", "inna@mail.ru", 28),
+                userDTO("Anna", "anna@mail.ru", 31),
+                userDTO("Lena", "lena@mail.ru", 25)).iterator());
+
+        assertEquals(3, result.getCreated());
+        assertEquals(0, result.getFailed());
+        assertEquals(List.of(1, 2, 3), result.getItems().stream().map(UserBatchItemResult::getId).toList());
+        verify(userRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void shouldReportInvalidAndDuplicateItemsWithoutFailingBatch() {
+        storedEmails.add("taken@mail.ru");
+
+        UserBatchResult result = userBatchService.createUsers(List.of(
+                userDTO("Katya", "katya@mail.ru", -5),
+                userDTO("Taken", "taken@mail.ru", 40),
+                userDTO("Kirill", "kirill@mail.ru", 20),
+                userDTO("Kirill", "kirill@mail.ru", 21)).iterator());
+
+        assertEquals(1, result.getCreated());
+        assertEquals(3, result.getFailed());
+
+        List<UserBatchItemResult> items = result.getItems();
+        assertEquals(UserBatchItemResult.Status.INVALID, items.get(0).getStatus());
+        assertEquals("age - Age should be more than 0", items.get(0).getMessage());
+        assertEquals(UserBatchItemResult.Status.DUPLICATE, items.get(1).getStatus());
+        assertEquals(UserBatchItemResult.Status.CREATED, items.get(2).getStatus());
+        assertEquals(UserBatchItemResult.Status.DUPLICATE, items.get(3).getStatus());
+        assertEquals("User with this email kirill@mail.ru already exists", items.get(3).getMessage());
+    }
+
+    @Test
+    void shouldFallBackToSingleInsertsWhenChunkViolatesConstraint() {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of());
+        doAnswer(invocation -> {
+            throw new DataIntegrityViolationException("duplicate");
+        }).when(userRepository).saveAll(anyList());
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            if (user.getEmail().equals("race@mail.ru")) {
+                throw new DataIntegrityViolationException("duplicate");
+            }
+            user.setId(ids.incrementAndGet());
+            return user;
+        });
+
+        UserBatchResult result = userBatchService.createUsers(List.of(
+                userDTO("Race", "race@mail.ru", 30),
+                userDTO("Alex", "alex@mail.ru", 32)).iterator());
+
+        assertEquals(1, result.getCreated());
+        assertEquals(UserBatchItemResult.Status.DUPLICATE, result.getItems().get(0).getStatus());
+        assertEquals(UserBatchItemResult.Status.CREATED, result.getItems().get(1).getStatus());
+    }
+
+    @Test
+    void shouldSkipInsertWhenWholeChunkIsRejected() {
+        UserBatchResult result = userBatchService.createUsers(List.of(
+                userDTO("", "wrong", 200)).iterator());
+
+        assertEquals(0, result.getCreated());
+        assertEquals(1, result.getFailed());
+        verify(userRepository, never()).saveAll(anyList());
+    }
+
+    private static UserDTO userDTO(String name, String email, int age) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setName(name);
+        userDTO.setEmail(email);
+        userDTO.setAge(age);
+        return userDTO;
+    }
+}
@@ -0,0 +1,122 @@
+package ru.aston.user.service.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class SingleFlightTest {
+    private static final int WAITERS = 50;
+
+    private final SingleFlight<Integer, String> singleFlight = new SingleFlight<>(4);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldShareOneExecutionBetweenConcurrentCallers() throws Exception {
+        for (Future<String> result : callConcurrently(1, () -> "Lena")) {
+            assertEquals("Lena", result.get());
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.executions());
+        assertEquals(WAITERS, singleFlight.joins());
+    }
+
+    @Test
+    void shouldShareNullAndExceptions() throws Exception {
+        for (Future<String> result : callConcurrently(1, () -> null)) {
+            assertNull(result.get());
+        }
+
+        IllegalStateException failure = new IllegalStateException("DB down");
+        for (Future<String> result : callConcurrently(2, () -> {
+            throw failure;
+        })) {
+            ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+            assertSame(failure, exception.getCause());
+        }
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void shouldNotJoinFlightStartedBeforeCallersGeneration() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> stale = executor.submit(() -> singleFlight.execute(1, 0, blocked(release, () -> "old")));
+        await(() -> calls.get() == 1);
+
+        assertEquals("new", singleFlight.execute(1, 1, () -> "new"));
+        release.countDown();
+
+        assertEquals("old", stale.get());
+        assertEquals(0, singleFlight.joins());
+    }
+
+    @Test
+    void shouldRunAgainOnceTheFlightHasLanded() {
+        assertEquals("first", singleFlight.execute(1, 0, () -> "first"));
+        assertEquals("second", singleFlight.execute(1, 0, () -> "second"));
+
+        assertEquals(2, singleFlight.executions());
+    }
+
+    // The leader is held until every waiter has joined its flight
+    private List<Future<String>> callConcurrently(int key, Supplier<String> result) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        int callsBefore = calls.get();
+        long joinsBefore = singleFlight.joins();
+
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.execute(key, 0, blocked(release, result))));
+        await(() -> calls.get() > callsBefore);
+        for (int i = 0; i < WAITERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute(key, 0, () -> {
+                throw new AssertionError("A waiter ran its own loader");
+            })));
+        }
+        await(() -> singleFlight.joins() == joinsBefore + WAITERS);
+        release.countDown();
+        return results;
+    }
+
+    private Supplier<String> blocked(CountDownLatch release, Supplier<String> result) {
+        return () -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result.get();
+        };
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,138 @@
+package ru.aston.user.service.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+class UserCacheTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldCountHitsAndMisses() {
+        UserCache userCache = new UserCache(10, Duration.ofMinutes(1), meterRegistry);
+
+        assertNull(userCache.getIfPresent(1));
+        userCache.putUnlessEvicted(1, snapshot(1, 0), userCache.evictionStamp(1));
+        assertNotNull(userCache.getIfPresent(1));
+        assertNotNull(userCache.getIfPresent(1));
+
+        assertEquals(2, gets("hit"));
+        assertEquals(1, gets("miss"));
+    }
+
+    @Test
+    void shouldEvictImmediatelyOutsideTransaction() {
+        UserCache userCache = new UserCache(10, Duration.ofMinutes(1), meterRegistry);
+        userCache.putUnlessEvicted(1, snapshot(1, 0), userCache.evictionStamp(1));
+
+        userCache.evictAfterCommit(1);
+
+        assertNull(userCache.getIfPresent(1));
+    }
+
+    @Test
+    void shouldDeferEvictionUntilCommit() {
+        UserCache userCache = new UserCache(10, Duration.ofMinutes(1), meterRegistry);
+        userCache.putUnlessEvicted(1, snapshot(1, 0), userCache.evictionStamp(1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        userCache.evictAfterCommit(1);
+        assertNotNull(userCache.getIfPresent(1));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertNull(userCache.getIfPresent(1));
+    }
+
+    @Test
+    void shouldDropSnapshotReadBeforeAnEviction() {
+        UserCache userCache = new UserCache(10, Duration.ofMinutes(1), meterRegistry);
+
+        long stamp = userCache.evictionStamp(1);
+        userCache.evictAfterCommit(1);
+        userCache.putUnlessEvicted(1, snapshot(1, 0), stamp);
+        assertNull(userCache.getIfPresent(1));
+
+        userCache.putUnlessEvicted(1, snapshot(1, 0), userCache.evictionStamp(1));
+        assertNotNull(userCache.getIfPresent(1));
+    }
+
+    @Test
+    void shouldKeepSnapshotWhenAnotherUserIsEvicted() {
+        UserCache userCache = new UserCache(10, Duration.ofMinutes(1), meterRegistry);
+
+        long stamp = userCache.evictionStamp(1);
+        userCache.evictAfterCommit(2);
+        userCache.putUnlessEvicted(1, snapshot(1, 0), stamp);
+
+        assertNotNull(userCache.getIfPresent(1));
+    }
+
+    // Readers load the way UserService does while a writer keeps committing new versions: once
+    // everything has settled the cache may have lost the entry, but never holds an old version
+    @Test
+    void shouldNeverKeepStaleSnapshotWhenLoadsRaceEvictions() throws Exception {
+        UserCache userCache = new UserCache(10, Duration.ofMinutes(1), meterRegistry);
+        AtomicLong committedVersion = new AtomicLong();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                readers.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        if (userCache.getIfPresent(1) == null) {
+                            long stamp = userCache.evictionStamp(1);
+                            userCache.putUnlessEvicted(1, snapshot(1, committedVersion.get()), stamp);
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < 20_000; i++) {
+                committedVersion.incrementAndGet();
+                userCache.evictAfterCommit(1);
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        UserSnapshot cached = userCache.getIfPresent(1);
+        if (cached != null) {
+            assertEquals(committedVersion.get(), cached.version());
+        }
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", UserCache.CACHE_NAME).tag("result", result)
+                .functionCounter().count();
+    }
+
+    private static UserSnapshot snapshot(Integer id, long version) {
+        return new UserSnapshot(id, "Lena", "lena@mail.ru", 25, LocalDateTime.now(), Instant.now(), version);
+    }
+}
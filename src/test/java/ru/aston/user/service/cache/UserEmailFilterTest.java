@@ -0,0 +1,92 @@
+package ru.aston.user.service.cache;
+
+import ru.aston.user.repository.UserRepository;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class UserEmailFilterTest {
+    private static final int EMAILS = 100_000;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldTreatEveryEmailAsPossibleUntilWarmedUp() {
+        UserEmailFilter filter = new UserEmailFilter(userRepository, new TransactionTemplate(transactionManager), 1_000, 0.01);
+
+        assertTrue(filter.mightExist("new@mail.ru"));
+    }
+
+    @Test
+    void shouldNeverMissStoredEmailsAndKeepFalsePositivesNearTarget() {
+        when(userRepository.streamAllEmails()).thenReturn(IntStream.range(0, EMAILS / 2).mapToObj(this::email));
+        UserEmailFilter filter = new UserEmailFilter(userRepository, new TransactionTemplate(transactionManager), EMAILS, 0.01);
+
+        filter.warmUp();
+        IntStream.range(EMAILS / 2, EMAILS).mapToObj(this::email).forEach(filter::add);
+
+        assertTrue(IntStream.range(0, EMAILS).mapToObj(this::email).allMatch(filter::mightExist));
+        long falsePositives = IntStream.range(EMAILS, 2 * EMAILS).mapToObj(this::email)
+                .filter(filter::mightExist)
+                .count();
+        assertTrue(falsePositives < EMAILS * 0.02, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void shouldAnswerDefinitelyNewAfterWarmUp() {
+        when(userRepository.streamAllEmails()).thenReturn(Stream.of("lena@mail.ru"));
+        UserEmailFilter filter = new UserEmailFilter(userRepository, new TransactionTemplate(transactionManager), 1_000, 0.01);
+
+        filter.warmUp();
+
+        assertTrue(filter.mightExist("lena@mail.ru"));
+        assertFalse(filter.mightExist("anna@mail.ru"));
+    }
+
+    @Test
+    void shouldWarmUpWithoutBlockingReadiness() throws Exception {
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.streamAllEmails()).thenAnswer(invocation -> {
+            scanning.countDown();
+            release.await();
+            return Stream.of("lena@mail.ru");
+        });
+        UserEmailFilter filter = new UserEmailFilter(userRepository, new TransactionTemplate(transactionManager),
+                1_000, 0.01);
+
+        filter.startWarmUp();
+        scanning.await();
+
+        // The listener has returned while the scan is still running, and nothing is ruled out meanwhile
+        assertTrue(filter.mightExist("anna@mail.ru"));
+
+        release.countDown();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (filter.mightExist("anna@mail.ru") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(filter.mightExist("anna@mail.ru"));
+        assertTrue(filter.mightExist("lena@mail.ru"));
+    }
+
+    private String email(int i) {
+        return "user" + i + "@mail.ru";
+    }
+}
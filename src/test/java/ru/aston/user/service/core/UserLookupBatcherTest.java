@@ -0,0 +1,104 @@
+package ru.aston.user.service.core;
+
+import ru.aston.user.entity.User;
+import ru.aston.user.repository.UserRepository;
+import ru.aston.user.service.cache.UserSnapshot;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class UserLookupBatcherTest {
+    @Mock
+    private UserRepository userRepository;
+
+    @Test
+    void shouldReadConcurrentLookupsWithOneQuery() throws Exception {
+        when(userRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<User> users = new ArrayList<>();
+            for (Integer id : invocation.<Collection<Integer>>getArgument(0)) {
+                if (id % 10 != 0) {
+                    users.add(user(id));
+                }
+            }
+            return users;
+        });
+        UserLookupBatcher batcher = new UserLookupBatcher(userRepository, Duration.ofMillis(200), 1000);
+
+        List<UserSnapshot> found = loadConcurrently(batcher, 50);
+
+        for (int i = 0; i < found.size(); i++) {
+            int id = i + 1;
+            assertEquals(id % 10 == 0 ? null : id, found.get(i) == null ? null : found.get(i).id());
+        }
+        verify(userRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void shouldReadFullBatchWithoutWaitingForTheWindow() {
+        when(userRepository.findAllById(any())).thenReturn(List.of(user(1)));
+        UserLookupBatcher batcher = new UserLookupBatcher(userRepository, Duration.ofMinutes(1), 1);
+
+        assertEquals(1, batcher.load(1).id());
+    }
+
+    @Test
+    void shouldFailEveryLookupOfAFailedBatch() throws Exception {
+        when(userRepository.findAllById(any())).thenThrow(new DataAccessResourceFailureException("DB down"));
+        UserLookupBatcher batcher = new UserLookupBatcher(userRepository, Duration.ofMillis(200), 1000);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> loadConcurrently(batcher, 10));
+
+        assertInstanceOf(DataAccessResourceFailureException.class, failure.getCause());
+        verify(userRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void shouldBeDisabledWithoutWindow() {
+        UserLookupBatcher batcher = new UserLookupBatcher(userRepository, Duration.ZERO, 100);
+
+        assertFalse(batcher.isEnabled());
+    }
+
+    private static List<UserSnapshot> loadConcurrently(UserLookupBatcher batcher, int lookups) throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<UserSnapshot>> futures = new ArrayList<>(lookups);
+            for (int i = 1; i <= lookups; i++) {
+                int id = i;
+                futures.add(executor.submit(() -> batcher.load(id)));
+            }
+
+            List<UserSnapshot> found = new ArrayList<>(lookups);
+            for (Future<UserSnapshot> future : futures) {
+                found.add(future.get());
+            }
+            return found;
+        }
+    }
+
+    private static User user(int id) {
+        User user = new User("User" + id, "user" + id + "@mail.ru", 30);
+        user.setId(id);
+        return user;
+    }
+}
@@ -1,25 +1,54 @@
 package ru.aston.user.service.core;
 
+import ru.aston.user.dto.UserSearchCriteria;
 import ru.aston.user.entity.User;
+import ru.aston.user.outbox.UserEventType;
+import ru.aston.user.outbox.UserOutbox;
 import ru.aston.user.repository.UserRepository;
+import ru.aston.user.repository.UserView;
+import ru.aston.user.service.cache.UserCache;
+import ru.aston.user.service.cache.UserEmailFilter;
+import ru.aston.user.service.cache.UserSnapshot;
+import ru.aston.user.util.UserConflictException;
 import ru.aston.user.util.UserNotFoundException;
 import ru.aston.user.util.UserNotCreatedException;
 import ru.aston.user.util.UserNotUpdatedException;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import jakarta.persistence.EntityManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.data.domain.Limit;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 @ExtendWith(MockitoExtension.class)
@@ -28,7 +57,21 @@ class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private UserService self;
+    private EntityManager entityManager;
+
+    @Mock
+    private UserOutbox userOutbox;
+
+    @Mock
+    private UserEmailFilter userEmailFilter;
+
+    @Mock
+    private UserLookupBatcher userLookupBatcher;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private UserCache userCache = new UserCache(100, Duration.ofMinutes(1), meterRegistry);
 
     @InjectMocks
     private UserService userService;
@@ -36,29 +79,43 @@ class UserServiceTest {
     @Test
     void shouldCreateUserSuccessfully() {
         User user = new User("Lena", "lena@mail.ru", 25);
-        when(userRepository.save(any(User.class))).thenReturn(user);
+        user.setId(1);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
 
         User created = userService.createUser(user);
 
         assertEquals("Lena", created.getName());
         assertEquals("lena@mail.ru", created.getEmail());
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userOutbox, times(1)).record(UserEventType.CREATED, user);
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    void shouldRejectLikelyDuplicateEmailWithoutInsert() {
+        when(userEmailFilter.mightExist("lena@mail.ru")).thenReturn(true);
+        when(userRepository.existsByEmail("lena@mail.ru")).thenReturn(true);
+
+        UserNotCreatedException exception = assertThrows(UserNotCreatedException.class,
+                () -> userService.createUser(new User("Lena", "lena@mail.ru", 25)));
+
+        assertEquals("User with this email lena@mail.ru already exists", exception.getMessage());
+        verify(userRepository, never()).saveAndFlush(any());
     }
 
     @Test
     void shouldThrowUserNotCreatedExceptionWhenEmailExists() {
         User user = new User("Lena", "lena@mail.ru", 25);
-        when(userRepository.save(any(User.class)))
+        when(userRepository.saveAndFlush(any(User.class)))
                 .thenThrow(new DataIntegrityViolationException("duplicate"));
 
         assertThrows(UserNotCreatedException.class, () -> userService.createUser(user));
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
     }
 
     @Test
     void shouldThrowDataAccessExceptionWhenDatabaseFailsOnCreate() {
         User user = new User("Lena", "lena@mail.ru", 25);
-        when(userRepository.save(any(User.class)))
+        when(userRepository.saveAndFlush(any(User.class)))
                 .thenThrow(new DataAccessResourceFailureException("DB down"));
 
         assertThrows(DataAccessResourceFailureException.class, () -> userService.createUser(user));
@@ -75,42 +132,243 @@ class UserServiceTest {
         assertEquals("alex@mail.ru", found.getEmail());
     }
 
+    @Test
+    void shouldReturnUsersPageAfterCursor() {
+        User user = new User("Alex", "alex@mail.ru", 30);
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(10, Limit.of(5))).thenReturn(List.of(user));
+
+        List<User> page = userService.getUsersPage(10, 5);
+
+        assertEquals(1, page.size());
+        assertEquals("Alex", page.get(0).getName());
+    }
+
+    @Test
+    void shouldApplyRemainingFiltersToEmailMatch() {
+        UserView user = mock(UserView.class);
+        when(user.getId()).thenReturn(3);
+        when(user.getAge()).thenReturn(30);
+        when(userRepository.findViewByEmail("alex@mail.ru")).thenReturn(Optional.of(user));
+
+        assertEquals(List.of(user), userService.searchUsers(
+                new UserSearchCriteria("alex@mail.ru", null, 18, null), 0, 10));
+        assertEquals(List.of(), userService.searchUsers(
+                new UserSearchCriteria("alex@mail.ru", null, 40, null), 0, 10));
+    }
+
+    @Test
+    void shouldSearchByNamePrefixAndOpenAgeRange() {
+        UserView user = mock(UserView.class);
+        when(userRepository.findViewByNameStartingWithAndAgeBetweenAndIdGreaterThanOrderByIdAsc(
+                "Al", 18, Integer.MAX_VALUE, 5, Limit.of(20))).thenReturn(List.of(user));
+
+        List<UserView> found = userService.searchUsers(new UserSearchCriteria(null, "Al", 18, null), 5, 20);
+
+        assertEquals(List.of(user), found);
+    }
+
+    @Test
+    void shouldRejectStaleVersionAsConflictAndDropCachedUser() {
+        User cached = new User("Alex", "alex@mail.ru", 30);
+        cached.setId(1);
+        cached.setVersion(3L);
+        when(userRepository.findById(1)).thenReturn(Optional.of(cached));
+        when(userRepository.updatePartially(eq(1), eq(null), eq(null), eq(31), eq(3L), any(Instant.class)))
+                .thenReturn(Optional.empty());
+        when(userRepository.existsById(1)).thenReturn(true);
+
+        userService.getUserById(1);
+        User patch = new User(null, null, 31);
+        patch.setVersion(3L);
+
+        assertThrows(UserConflictException.class, () -> userService.updateUser(1, patch));
+        verify(userCache, times(1)).evict(1);
+        verify(userOutbox, never()).record(any(), any());
+    }
+
+    @Test
+    void shouldReadVersionFromCacheBeforeRepository() {
+        User user = new User("Alex", "alex@mail.ru", 30);
+        user.setId(1);
+        user.setVersion(3L);
+        when(userRepository.findById(1)).thenReturn(Optional.of(user));
+        when(userRepository.findVersionById(2)).thenReturn(Optional.of(7L));
+
+        userService.getUserById(1);
+
+        assertEquals(3L, userService.getUserVersion(1));
+        assertEquals(7L, userService.getUserVersion(2));
+        verify(userRepository, never()).findVersionById(1);
+    }
+
+    @Test
+    void shouldThrowWhenVersionOfMissingUserIsRequested() {
+        when(userRepository.findVersionById(999)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.getUserVersion(999));
+    }
+
+    @Test
+    void shouldStreamAndDetachEveryUser() {
+        User first = new User("Alex", "alex@mail.ru", 30);
+        User second = new User("Kate", "kate@mail.ru", 27);
+        when(userRepository.streamAll()).thenReturn(Stream.of(first, second));
+
+        List<User> received = new ArrayList<>();
+        userService.streamAllUsers(received::add);
+
+        assertEquals(List.of(first, second), received);
+        verify(entityManager, times(1)).detach(first);
+        verify(entityManager, times(1)).detach(second);
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        User user = new User("Alex", "alex@mail.ru", 30);
+        user.setId(1);
+        when(userRepository.findById(1)).thenReturn(Optional.of(user));
+
+        User first = userService.getUserById(1);
+        User second = userService.getUserById(1);
+
+        assertEquals("Alex", second.getName());
+        assertNotSame(first, second);
+        verify(userRepository, times(1)).findById(1);
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
     @Test
     void shouldThrowExceptionWhenUserNotFound() {
         when(userRepository.findById(999)).thenReturn(Optional.empty());
 
         assertThrows(UserNotFoundException.class, () -> userService.getUserById(999));
+        assertThrows(UserNotFoundException.class, () -> userService.getUserById(999));
+
+        verify(userRepository, times(2)).findById(999);
+    }
+
+    @Test
+    void shouldLookUpMissesWithOneQueryInRequestedOrder() {
+        User first = new User("Alex", "alex@mail.ru", 30);
+        first.setId(1);
+        User second = new User("Kate", "kate@mail.ru", 27);
+        second.setId(2);
+        User third = new User("Ivan", "ivan@mail.ru", 41);
+        third.setId(3);
+        when(userRepository.findById(1)).thenReturn(Optional.of(first));
+        when(userRepository.findAllById(List.of(3, 2, 4))).thenReturn(List.of(second, third));
+        userService.getUserById(1);
+
+        UserLookup lookup = userService.getUsersByIds(List.of(3, 1, 2, 3, 4));
+
+        assertEquals(List.of(3, 1, 2), lookup.users().stream().map(User::getId).toList());
+        assertEquals(List.of(4), lookup.missing());
+        verify(userRepository, times(1)).findAllById(any());
+        assertEquals("Kate", userService.getUserById(2).getName());
+        verify(userRepository, never()).findById(2);
+    }
+
+    @Test
+    void shouldLoadThroughBatcherWhenEnabled() {
+        when(userLookupBatcher.isEnabled()).thenReturn(true);
+        when(userLookupBatcher.load(1)).thenReturn(
+                UserSnapshot.of(new User("Alex", "alex@mail.ru", 30)));
+
+        assertEquals("Alex", userService.getUserById(1).getName());
+        verify(userRepository, never()).findById(any());
+    }
+
+    // A hot id under a slowed stand-in repository: without coalescing every caller that misses the
+    // cache would run its own query, here they all wait for the first one.
+    @Test
+    void shouldCoalesceConcurrentLookupsOfTheSameUser() throws Exception {
+        User user = new User("Alex", "alex@mail.ru", 30);
+        user.setId(1);
+        AtomicInteger queries = new AtomicInteger();
+        when(userRepository.findById(1)).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            Thread.sleep(200);
+            return Optional.of(user);
+        });
+
+        List<User> found = lookUpConcurrently(1, 200);
+
+        assertEquals(200, found.size());
+        assertTrue(found.stream().allMatch(result -> "Alex".equals(result.getName())));
+        assertTrue(queries.get() <= 2, "200 concurrent lookups ran " + queries.get() + " queries");
+    }
+
+    @Test
+    void shouldShareNotFoundAndErrorsWithConcurrentLookups() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        when(userRepository.findById(999)).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            Thread.sleep(200);
+            return Optional.empty();
+        });
+        when(userRepository.findById(500)).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            Thread.sleep(200);
+            throw new DataAccessResourceFailureException("DB down");
+        });
+
+        ExecutionException notFound = assertThrows(ExecutionException.class, () -> lookUpConcurrently(999, 100));
+        ExecutionException failed = assertThrows(ExecutionException.class, () -> lookUpConcurrently(500, 100));
+
+        assertInstanceOf(UserNotFoundException.class, notFound.getCause());
+        assertInstanceOf(DataAccessResourceFailureException.class, failed.getCause());
+        assertTrue(queries.get() <= 4, "2 x 100 concurrent lookups ran " + queries.get() + " queries");
     }
 
     @Test
     void shouldUpdateUserSuccessfully() {
-        User existing = new User("Old", "old@mail.ru", 20);
         User updated = new User("New", "new@mail.ru", 21);
 
-        when(self.getUserById(1)).thenReturn(existing);
-        when(userRepository.save(any(User.class))).thenReturn(updated);
+        when(userRepository.updatePartially(eq(1), eq("New"), eq("new@mail.ru"), eq(21), eq(null), any(Instant.class)))
+                .thenReturn(Optional.of(updated));
 
         User result = userService.updateUser(1, updated);
 
         assertEquals("New", result.getName());
         assertEquals("new@mail.ru", result.getEmail());
+        verify(userOutbox, times(1)).record(UserEventType.UPDATED, updated);
+        verify(userCache, times(1)).evictAfterCommit(1);
+    }
+
+    @Test
+    void shouldPassOnlySuppliedFieldsToPartialUpdate() {
+        User patch = new User(null, null, 42);
+        User stored = new User("Old", "old@mail.ru", 42);
+
+        when(userRepository.updatePartially(eq(1), eq(null), eq(null), eq(42), eq(null), any(Instant.class)))
+                .thenReturn(Optional.of(stored));
+
+        User result = userService.updateUser(1, patch);
+
+        assertEquals("Old", result.getName());
+        assertEquals(42, result.getAge());
+        verify(userRepository, never()).findById(any());
+        verify(userRepository, never()).save(any());
     }
 
     @Test
     void shouldThrowExceptionWhenUpdatingNonExistingUser() {
-        when(self.getUserById(999)).thenThrow(new UserNotFoundException("not found"));
+        when(userRepository.updatePartially(eq(999), eq("Nastya"), eq("nastya@mail.ru"), eq(10), eq(null), any(Instant.class)))
+                .thenReturn(Optional.empty());
 
-        assertThrows(UserNotFoundException.class,
+        UserNotFoundException exception = assertThrows(UserNotFoundException.class,
                 () -> userService.updateUser(999, new User("Nastya", "nastya@mail.ru", 10)));
+
+        assertEquals("User with ID 999 not found", exception.getMessage());
+        verify(userCache, never()).evictAfterCommit(any());
     }
 
     @Test
     void shouldThrowUserNotUpdatedExceptionWhenSaveFails() {
-        User existing = new User("Old", "old@mail.ru", 20);
         User updated = new User("New", "new@mail.ru", 21);
 
-        when(self.getUserById(1)).thenReturn(existing);
-        when(userRepository.save(any(User.class)))
+        when(userRepository.updatePartially(eq(1), eq("New"), eq("new@mail.ru"), eq(21), eq(null), any(Instant.class)))
                 .thenThrow(new RuntimeException("DB write error"));
 
         assertThrows(UserNotUpdatedException.class, () -> userService.updateUser(1, updated));
@@ -118,21 +376,45 @@ class UserServiceTest {
 
     @Test
     void shouldDeleteUserSuccessfully() {
-        User user = new User("Kate", "kate@mail.ru", 27);
-
-        when(self.getUserById(1)).thenReturn(user);
+        when(userRepository.deleteUserById(1)).thenReturn(1);
 
         userService.deleteUser(1);
 
-        verify(userRepository, times(1)).delete(user);
+        verify(userRepository, times(1)).deleteUserById(1);
+        verify(userOutbox, times(1)).recordDeleted(1);
+        verify(userRepository, never()).findById(any());
+        verify(userCache, times(1)).evictAfterCommit(1);
     }
 
     @Test
     void shouldThrowExceptionWhenDeletingNonExistingUser() {
-        when(self.getUserById(999)).thenThrow(new UserNotFoundException("User not found"));
+        when(userRepository.deleteUserById(999)).thenReturn(0);
 
-        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(999));
+        UserNotFoundException exception = assertThrows(UserNotFoundException.class,
+                () -> userService.deleteUser(999));
+
+        assertEquals("User with ID 999 not found", exception.getMessage());
+        verify(userOutbox, never()).recordDeleted(any());
+        verify(userCache, never()).evictAfterCommit(any());
+    }
 
-        verify(userRepository, times(0)).delete(any());
+    private List<User> lookUpConcurrently(int id, int callers) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            List<Future<User>> futures = new ArrayList<>(callers);
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return userService.getUserById(id);
+                }));
+            }
+            start.countDown();
+
+            List<User> users = new ArrayList<>(callers);
+            for (Future<User> future : futures) {
+                users.add(future.get());
+            }
+            return users;
+        }
     }
 }
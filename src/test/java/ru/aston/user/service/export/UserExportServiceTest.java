@@ -0,0 +1,170 @@
+package ru.aston.user.service.export;
+
+import ru.aston.user.entity.User;
+import ru.aston.user.mapper.UserMapper;
+import ru.aston.user.repository.UsersVersion;
+import ru.aston.user.service.core.UserService;
+import ru.aston.user.util.UserExportBusyException;
+import ru.aston.user.util.UserNotFoundException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class UserExportServiceTest {
+    @Mock
+    private UserService userService;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldWriteCompressedCsvWithQuotedFields() throws Exception {
+        streamUsers(user(1, "Lena", "lena@mail.ru", 25), user(2, "Doe, \"Jo\"", "jo@mail.ru", null));
+
+        UserExportJob job = export(UserExportFormat.CSV);
+
+        assertEquals(UserExportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(2, job.getRowsWritten());
+        assertEquals(2, job.getTotalRows());
+        assertEquals(Files.size(job.getFile()), job.getSizeBytes());
+        assertEquals("id,name,email,age\n1,Lena,lena@mail.ru,25\n2,\"Doe, \"\"Jo\"\"\",jo@mail.ru,\n",
+                gunzip(job.getFile()));
+    }
+
+    @Test
+    void shouldWriteCompressedNdjson() throws Exception {
+        streamUsers(user(1, "Lena", "lena@mail.ru", 25), user(2, "Anna", "anna@mail.ru", 31));
+
+        UserExportJob job = export(UserExportFormat.NDJSON);
+
+        assertEquals(UserExportJob.Status.COMPLETED, job.getStatus());
+        assertEquals("""
+                {"id":1,"name":"Lena","email":"lena@mail.ru","age":25}
+                {"id":2,"name":"Anna","email":"anna@mail.ru","age":31}
+                """, gunzip(job.getFile()));
+    }
+
+    @Test
+    void shouldFailJobAndLeaveNoFileBehindWhenStreamingBreaks() throws Exception {
+        when(userService.getUsersVersion()).thenReturn(new UsersVersion(1, 3, Instant.now()));
+        doAnswer(invocation -> {
+            throw new IllegalStateException("cursor closed");
+        }).when(userService).streamAllUsers(any());
+
+        UserExportJob job = export(UserExportFormat.CSV);
+
+        assertEquals(UserExportJob.Status.FAILED, job.getStatus());
+        assertEquals("cursor closed", job.getError());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void shouldRejectUnknownJob() throws Exception {
+        UserExportService service = service();
+
+        assertThrows(UserNotFoundException.class, () -> service.getJob("missing"));
+    }
+
+    @Test
+    void shouldRejectExportsBeyondPendingLimit() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userService.getUsersVersion()).thenReturn(new UsersVersion(0, 3, Instant.now()));
+        doAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            return null;
+        }).when(userService).streamAllUsers(any());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1));
+        UserExportService service = new UserExportService(userService, new UserMapper(), new ObjectMapper(),
+                directory, 64, Duration.ofMinutes(1), executor);
+
+        try {
+            UserExportJob first = service.start(UserExportFormat.CSV);
+            running.await();
+            UserExportJob pending = service.start(UserExportFormat.NDJSON);
+
+            assertThrows(UserExportBusyException.class, () -> service.start(UserExportFormat.CSV));
+            assertEquals(first, service.getJob(first.getId()));
+            assertEquals(pending, service.getJob(pending.getId()));
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void shouldRemoveFilesLeftByEarlierRuns() throws Exception {
+        Path leftover = Files.writeString(directory.resolve("users-old.csv.gz.part"), "partial");
+
+        service();
+
+        assertTrue(Files.notExists(leftover));
+    }
+
+    private UserExportJob export(UserExportFormat format) throws Exception {
+        UserExportService service = service();
+        UserExportJob job = service.start(format);
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (job.getFinishedAt() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return job;
+    }
+
+    private UserExportService service() throws IOException {
+        return new UserExportService(userService, new UserMapper(), new ObjectMapper(), directory, 64,
+                Duration.ofMinutes(1), Executors.newSingleThreadExecutor());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamUsers(User... users) {
+        when(userService.getUsersVersion()).thenReturn(new UsersVersion(users.length, 3, Instant.now()));
+        doAnswer(invocation -> {
+            List.of(users).forEach(invocation.<Consumer<User>>getArgument(0));
+            return null;
+        }).when(userService).streamAllUsers(any());
+    }
+
+    private static User user(int id, String name, String email, Integer age) {
+        User user = new User(name, email, age);
+        user.setId(id);
+        return user;
+    }
+
+    private static String gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.aston.user.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+class CsvTest {
+
+    @Test
+    void shouldReadQuotedFieldsAndReportStartingLine() throws IOException {
+        Csv.RecordReader reader = new Csv.RecordReader(new StringReader(
+                "name,email\r\n\"Doe, \"\"Jo\"\"\",jo@mail.ru\r\n\"two\nlines\",x@mail.ru\nlast,\n"));
+
+        assertEquals(List.of("name", "email"), reader.next());
+        assertEquals(1, reader.getLine());
+        assertEquals(List.of("Doe, \"Jo\"", "jo@mail.ru"), reader.next());
+        assertEquals(2, reader.getLine());
+        assertEquals(List.of("two\nlines", "x@mail.ru"), reader.next());
+        assertEquals(3, reader.getLine());
+        assertEquals(List.of("last", ""), reader.next());
+        assertEquals(5, reader.getLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void shouldReadLastRecordWithoutTrailingNewline() throws IOException {
+        Csv.RecordReader reader = new Csv.RecordReader(new StringReader("a,b\n\nc,\"\""));
+
+        assertEquals(List.of("a", "b"), reader.next());
+        assertEquals(List.of(""), reader.next());
+        assertEquals(List.of("c", ""), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void shouldReadBackWhatItWrites() throws IOException {
+        StringWriter writer = new StringWriter();
+        Csv.writeField(writer, "plain");
+        writer.write(',');
+        Csv.writeField(writer, "with \"quotes\", commas\r\nand breaks");
+        writer.write('\n');
+
+        assertEquals(List.of("plain", "with \"quotes\", commas\r\nand breaks"),
+                new Csv.RecordReader(new StringReader(writer.toString())).next());
+    }
+}
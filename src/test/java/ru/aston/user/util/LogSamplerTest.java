@@ -0,0 +1,35 @@
+package ru.aston.user.util;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class LogSamplerTest {
+
+    @Test
+    void shouldLetFirstCallThroughAndSuppressTheRestOfTheInterval() {
+        LogSampler sampler = new LogSampler(Duration.ofHours(1));
+
+        assertEquals(0, sampler.tryAcquire());
+        assertEquals(LogSampler.SUPPRESSED, sampler.tryAcquire());
+        assertEquals(LogSampler.SUPPRESSED, sampler.tryAcquire());
+    }
+
+    @Test
+    void shouldReportSuppressedCountOnceIntervalHasPassed() throws InterruptedException {
+        LogSampler sampler = new LogSampler(Duration.ofMillis(20));
+
+        sampler.tryAcquire();
+        sampler.tryAcquire();
+        sampler.tryAcquire();
+        Thread.sleep(30);
+
+        assertEquals(2, sampler.tryAcquire());
+    }
+
+    @Test
+    void shouldNotCaptureStackTracesForDomainExceptions() {
+        assertEquals(0, new UserNotFoundException("User with ID 1 not found").getStackTrace().length);
+    }
+}
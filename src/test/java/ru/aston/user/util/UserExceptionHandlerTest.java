@@ -0,0 +1,31 @@
+package ru.aston.user.util;
+
+import java.time.Duration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+class UserExceptionHandlerTest {
+
+    @Test
+    void shouldCountSameExceptionUnderEachStatus() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserExceptionHandler handler = new UserExceptionHandler(meterRegistry, Duration.ofSeconds(1));
+
+        handler.errorCounter(HttpMediaTypeNotAcceptableException.class, HttpStatus.NOT_ACCEPTABLE).increment();
+        handler.errorCounter(HttpMediaTypeNotAcceptableException.class, HttpStatus.INTERNAL_SERVER_ERROR).increment();
+        handler.errorCounter(HttpMediaTypeNotAcceptableException.class, HttpStatus.NOT_ACCEPTABLE).increment();
+
+        assertEquals(2, count(meterRegistry, "406"));
+        assertEquals(1, count(meterRegistry, "500"));
+    }
+
+    private static double count(SimpleMeterRegistry meterRegistry, String status) {
+        return meterRegistry.get(UserExceptionHandler.ERRORS_NAME)
+                .tags("exception", "HttpMediaTypeNotAcceptableException", "status", status)
+                .counter().count();
+    }
+}
@@ -0,0 +1,104 @@
+package ru.aston.user.util;
+
+import ru.aston.user.dto.UserDTO;
+import ru.aston.user.dto.UserLookupResult;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnknownFieldSet;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class UserProtobufTest {
+
+    @Test
+    void shouldWriteUsersAsRepeatedLengthDelimitedMessages() throws IOException {
+        byte[] bytes = encode(out -> UserProtobuf.writeUsers(out,
+                List.of(user(1, "Lena", "lena@mail.ru", 25), user(2, "Анна", "anna@mail.ru", null))));
+
+        List<ByteString> users = UnknownFieldSet.parseFrom(bytes)
+                .getField(1).getLengthDelimitedList();
+        assertEquals(2, users.size());
+
+        UnknownFieldSet second = UnknownFieldSet.parseFrom(users.get(1));
+        assertEquals(List.of(2L), second.getField(1).getVarintList());
+        assertEquals("Анна", second.getField(2).getLengthDelimitedList().getFirst().toStringUtf8());
+        assertEquals("anna@mail.ru", second.getField(3).getLengthDelimitedList().getFirst().toStringUtf8());
+        assertFalse(second.hasField(4));
+
+        UserDTO first = UserProtobuf.readUser(CodedInputStream.newInstance(users.getFirst().toByteArray()));
+        assertEquals(1, first.getId());
+        assertEquals("Lena", first.getName());
+        assertEquals("lena@mail.ru", first.getEmail());
+        assertEquals(25, first.getAge());
+    }
+
+    @Test
+    void shouldPackMissingIdsOfLookup() throws IOException {
+        byte[] bytes = encode(out -> UserProtobuf.writeLookupResult(out,
+                new UserLookupResult(List.of(user(7, "Lena", "lena@mail.ru", 25)), List.of(3, 300, -1))));
+
+        UnknownFieldSet result = UnknownFieldSet.parseFrom(bytes);
+        assertEquals(1, result.getField(1).getLengthDelimitedList().size());
+        CodedInputStream missing = result.getField(2).getLengthDelimitedList().getFirst().newCodedInput();
+        assertEquals(3, missing.readInt32());
+        assertEquals(300, missing.readInt32());
+        assertEquals(-1, missing.readInt32());
+        assertTrue(missing.isAtEnd());
+    }
+
+    @Test
+    void shouldReadPartialUserSkippingUnknownFields() throws IOException {
+        byte[] bytes = encode(out -> {
+            out.writeString(3, "new@mail.ru");
+            out.writeString(9, "from a newer client");
+        });
+
+        UserDTO user = UserProtobuf.readUser(CodedInputStream.newInstance(bytes));
+
+        assertEquals("new@mail.ru", user.getEmail());
+        assertNull(user.getId());
+        assertNull(user.getName());
+        assertNull(user.getAge());
+    }
+
+    @Test
+    void shouldRejectFieldWithWrongWireType() throws IOException {
+        byte[] bytes = encode(out -> out.writeString(4, "twenty"));
+
+        assertThrows(InvalidProtocolBufferException.class,
+                () -> UserProtobuf.readUser(CodedInputStream.newInstance(bytes)));
+    }
+
+    private static byte[] encode(Writes writes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        writes.write(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static UserDTO user(int id, String name, String email, Integer age) {
+        UserDTO user = new UserDTO();
+        user.setId(id);
+        user.setName(name);
+        user.setEmail(email);
+        user.setAge(age);
+        return user;
+    }
+
+    @FunctionalInterface
+    private interface Writes {
+        void write(CodedOutputStream out) throws IOException;
+    }
+}